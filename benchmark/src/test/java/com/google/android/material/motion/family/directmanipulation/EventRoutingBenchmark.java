@@ -0,0 +1,102 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.google.android.material.motion.family.directmanipulation.benchmark.TouchStreams;
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares routing touch events only to the gesture recognizers that can act on them with
+ * dispatching every event to every recognizer, on a target with a drag, pinch, and rotation.
+ * <p>
+ * One operation is one {@link MotionEvent}. With one finger, routing skips the pinch and rotation
+ * recognizers for every move. With more fingers both modes dispatch the same events, so the
+ * scores show the cost of the routing check itself.
+ * <p>
+ * Lives in the library's package because {@link DirectManipulator} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class EventRoutingBenchmark {
+
+  @Param({"true", "false"})
+  public boolean routing;
+
+  @Param({"1", "2"})
+  public int fingers;
+
+  private DirectManipulator manipulator;
+  private MotionEvent[] stream;
+
+  @Setup
+  public void setUp() {
+    View target = new View(RuntimeEnvironment.application);
+    target.layout(0, 0, 200, 300);
+    stream = TouchStreams.create(fingers);
+
+    DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+    dragGestureRecognizer.dragSlop = 0;
+    ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+    scaleGestureRecognizer.scaleSlop = 0;
+    RotateGestureRecognizer rotateGestureRecognizer = new RotateGestureRecognizer();
+    rotateGestureRecognizer.rotateSlop = 0;
+
+    manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setRoutingEnabled(routing);
+    setGestureRecognizer(target, DirectManipulator.DRAG, dragGestureRecognizer);
+    setGestureRecognizer(target, DirectManipulator.SCALE, scaleGestureRecognizer);
+    setGestureRecognizer(target, DirectManipulator.ROTATE, rotateGestureRecognizer);
+  }
+
+  private void setGestureRecognizer(View target, int slot, GestureRecognizer gestureRecognizer) {
+    gestureRecognizer.setElement(target);
+    manipulator.setGestureRecognizer(slot, gestureRecognizer);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TouchStreams.EVENTS)
+  public void dispatch(Blackhole blackhole) {
+    for (int i = 0; i < TouchStreams.EVENTS; i++) {
+      blackhole.consume(manipulator.onTouchEvent(stream[i]));
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.google.android.material.motion.family.directmanipulation.benchmark.TouchStreams;
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of the always-on {@link GestureCounters} in the dispatch they count.
+ * <p>
+ * One operation is one {@link MotionEvent}. {@code dispatch} runs the stream through a drag,
+ * pinch, and rotation the way the performer does, with and without counting the events, the
+ * state changes, and the pivot recomputations. The difference between the two scores is the cost
+ * of the counters per event. The tokens, counted once per gesture, are counted in both. {@code
+ * count} performs the most counting a single event can cause, as an upper bound for that
+ * difference.
+ * <p>
+ * Lives in the library's package because {@link DirectManipulator} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class GestureCountersBenchmark {
+
+  @Param({"true", "false"})
+  public boolean counting;
+
+  @Param({"1", "2"})
+  public int fingers;
+
+  private final GestureCounters counters = new GestureCounters();
+  /**
+   * Not final, so that the state switch is not folded away.
+   */
+  private int state = GestureRecognizer.CHANGED;
+  private DirectManipulator manipulator;
+  private MotionEvent[] stream;
+
+  @Setup
+  public void setUp() {
+    View target = new View(RuntimeEnvironment.application);
+    target.layout(0, 0, 200, 300);
+    stream = TouchStreams.create(fingers);
+
+    DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+    dragGestureRecognizer.dragSlop = 0;
+    ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+    scaleGestureRecognizer.scaleSlop = 0;
+    RotateGestureRecognizer rotateGestureRecognizer = new RotateGestureRecognizer();
+    rotateGestureRecognizer.rotateSlop = 0;
+
+    manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setCounters(counters);
+    manipulator.setCountingEnabled(counting);
+    setGestureRecognizer(target, DirectManipulator.DRAG, dragGestureRecognizer);
+    setGestureRecognizer(target, DirectManipulator.SCALE, scaleGestureRecognizer);
+    setGestureRecognizer(target, DirectManipulator.ROTATE, rotateGestureRecognizer);
+  }
+
+  private void setGestureRecognizer(View target, int slot, GestureRecognizer gestureRecognizer) {
+    gestureRecognizer.setElement(target);
+    manipulator.setGestureRecognizer(slot, gestureRecognizer);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TouchStreams.EVENTS)
+  public void dispatch(Blackhole blackhole) {
+    for (int i = 0; i < TouchStreams.EVENTS; i++) {
+      boolean handled = manipulator.onTouchEvent(stream[i]);
+      if (counting) {
+        counters.onEvent(handled);
+      }
+      blackhole.consume(handled);
+    }
+  }
+
+  @Benchmark
+  public void count() {
+    counters.onEvent(true);
+    counters.onStateChanged(GestureCounters.DRAG, state);
+    counters.onStateChanged(GestureCounters.SCALE, state);
+    counters.onStateChanged(GestureCounters.ROTATE, state);
+    counters.onPivotRecomputed();
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+import android.view.View;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the cost of compensating for one pivot change, which happens on every CHANGED event of
+ * a pinch or rotation while the target is also draggable.
+ * <p>
+ * {@link #matrix()} is the previous implementation: two round-trips through {@link
+ * GestureRecognizer#getTransformationMatrix(View, Matrix, Matrix)}, each of which also inverts the
+ * matrix. {@link #closedForm()} is {@link PivotCompensation}.
+ * <p>
+ * Lives in the library's package because {@link PivotCompensation} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class PivotCompensationBenchmark {
+
+  private final Matrix matrix = new Matrix();
+  private final Matrix inverse = new Matrix();
+  private final float[] array = new float[2];
+
+  private View target;
+  private boolean flip;
+
+  @Setup
+  public void setUp() {
+    target = new View(RuntimeEnvironment.application);
+    target.layout(0, 0, 200, 300);
+    target.setTranslationX(12f);
+    target.setTranslationY(-34f);
+    target.setScaleX(1.5f);
+    target.setScaleY(1.5f);
+    target.setRotation(30f);
+  }
+
+  @Benchmark
+  public float[] matrix() {
+    float centroidX = nextCentroid();
+
+    array[0] = centroidX;
+    array[1] = centroidX;
+    GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
+    matrix.mapPoints(array);
+    float untransformedX = array[0];
+    float untransformedY = array[1];
+
+    target.setPivotX(centroidX);
+    target.setPivotY(centroidX);
+
+    array[0] = target.getPivotX();
+    array[1] = target.getPivotY();
+    GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
+    matrix.mapPoints(array);
+
+    array[0] = untransformedX - array[0];
+    array[1] = untransformedY - array[1];
+    return array;
+  }
+
+  @Benchmark
+  public float[] closedForm() {
+    float centroidX = nextCentroid();
+
+    PivotCompensation.getTranslationAdjustment(
+      target.getPivotX(),
+      target.getPivotY(),
+      centroidX,
+      centroidX,
+      target.getScaleX(),
+      target.getScaleY(),
+      target.getRotation(),
+      array);
+
+    target.setPivotX(centroidX);
+    target.setPivotY(centroidX);
+    return array;
+  }
+
+  /**
+   * Alternates between two centroids so that every operation moves the pivot.
+   */
+  private float nextCentroid() {
+    flip = !flip;
+    return flip ? 40f : 60f;
+  }
+}
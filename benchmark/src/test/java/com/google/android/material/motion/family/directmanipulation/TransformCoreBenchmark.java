@@ -0,0 +1,64 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the transform math of one touch event of a simultaneous drag, pinch, and rotation,
+ * without any view. This is the floor under {@code TouchDispatchBenchmark}'s per-event cost.
+ * <p>
+ * Lives in the library's package because {@link TransformCore} is package-private.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class TransformCoreBenchmark {
+
+  private final TransformCore transform = new TransformCore();
+  private int event;
+
+  @Setup
+  public void setUp() {
+    transform.read(0f, 0f, 1f, 1f, 0f, 100f, 150f);
+    transform.beginDrag();
+    transform.beginScale();
+    transform.beginRotation();
+  }
+
+  @Benchmark
+  public int changed() {
+    float progress = (event++ & 63) / 64f;
+
+    transform.drag(progress * 100f, progress * 50f);
+    transform.scale(1f + progress);
+    transform.rotate(progress);
+    transform.requestPivotToCentroid(40f + progress * 20f, 60f + progress * 20f);
+    return transform.commit(200f, 300f);
+  }
+}
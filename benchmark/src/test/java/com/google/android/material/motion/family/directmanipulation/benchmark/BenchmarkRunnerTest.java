@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation.benchmark;
+
+import com.google.android.material.motion.family.directmanipulation.EventRoutingBenchmark;
+import com.google.android.material.motion.family.directmanipulation.GestureCountersBenchmark;
+import com.google.android.material.motion.family.directmanipulation.PivotCompensationBenchmark;
+import com.google.android.material.motion.family.directmanipulation.TransformCoreBenchmark;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs the JMH benchmarks inside the Robolectric sandbox, which provides the {@code View} and
+ * {@code MotionEvent} implementations the plans need.
+ * <p>
+ * Skipped unless the build is run with {@code -Pbenchmark}. Results are written as JSON to
+ * {@code benchmark/build/reports/jmh} so that they can be compared between releases.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class BenchmarkRunnerTest {
+
+  @Test
+  public void touchDispatch() throws RunnerException {
+    assumeTrue(Boolean.getBoolean("benchmark"));
+    run(TouchDispatchBenchmark.class);
+  }
+
+  @Test
+  public void pivotCompensation() throws RunnerException {
+    assumeTrue(Boolean.getBoolean("benchmark"));
+    run(PivotCompensationBenchmark.class);
+  }
+
+  @Test
+  public void eventRouting() throws RunnerException {
+    assumeTrue(Boolean.getBoolean("benchmark"));
+    run(EventRoutingBenchmark.class);
+  }
+
+  @Test
+  public void transformCore() throws RunnerException {
+    assumeTrue(Boolean.getBoolean("benchmark"));
+    run(TransformCoreBenchmark.class);
+  }
+
+  @Test
+  public void gestureCounters() throws RunnerException {
+    assumeTrue(Boolean.getBoolean("benchmark"));
+    run(GestureCountersBenchmark.class);
+  }
+
+  private static void run(Class<?> benchmark) throws RunnerException {
+    File directory = new File(System.getProperty("benchmark.results"));
+    directory.mkdirs();
+    File results = new File(directory, benchmark.getSimpleName() + ".json");
+
+    Options options = new OptionsBuilder()
+      .include(benchmark.getSimpleName())
+      // Forking would leave the Robolectric sandbox.
+      .forks(0)
+      .addProfiler(GCProfiler.class)
+      .resultFormat(ResultFormatType.JSON)
+      .result(results.getPath())
+      .build();
+
+    new Runner(options).run();
+  }
+}
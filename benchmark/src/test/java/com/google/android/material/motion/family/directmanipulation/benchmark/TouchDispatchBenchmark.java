@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation.benchmark;
+
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.google.android.material.motion.family.directmanipulation.DirectlyManipulable;
+import com.google.android.material.motion.family.directmanipulation.Draggable;
+import com.google.android.material.motion.family.directmanipulation.Pinchable;
+import com.google.android.material.motion.family.directmanipulation.Rotatable;
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.MotionRuntime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replays synthetic touch streams through the plans of this family.
+ * <p>
+ * One operation is one {@link MotionEvent}, so the reported score is nanoseconds per event and the
+ * GC profiler's {@code gc.alloc.rate.norm} is bytes allocated per event. The {@code none} plan
+ * dispatches to a bare view and measures the cost of the harness itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+public class TouchDispatchBenchmark {
+
+  @Param({"none", "draggable", "pinchable", "rotatable", "directlyManipulable"})
+  public String plan;
+
+  @Param({"1", "2"})
+  public int fingers;
+
+  private View target;
+  private MotionEvent[] stream;
+
+  @Setup
+  public void setUp() {
+    target = new View(RuntimeEnvironment.application);
+    target.layout(0, 0, 200, 300);
+    stream = TouchStreams.create(fingers);
+
+    MotionRuntime runtime = new MotionRuntime();
+    DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+    dragGestureRecognizer.dragSlop = 0;
+    ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+    scaleGestureRecognizer.scaleSlop = 0;
+    RotateGestureRecognizer rotateGestureRecognizer = new RotateGestureRecognizer();
+    rotateGestureRecognizer.rotateSlop = 0;
+
+    switch (plan) {
+      case "none":
+        break;
+      case "draggable":
+        runtime.addPlan(new Draggable(dragGestureRecognizer), target);
+        break;
+      case "pinchable":
+        runtime.addPlan(new Pinchable(scaleGestureRecognizer), target);
+        break;
+      case "rotatable":
+        runtime.addPlan(new Rotatable(rotateGestureRecognizer), target);
+        break;
+      case "directlyManipulable":
+        runtime.addPlan(
+          new DirectlyManipulable(
+            dragGestureRecognizer, scaleGestureRecognizer, rotateGestureRecognizer),
+          target);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown plan " + plan);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TouchStreams.EVENTS)
+  public void dispatch(Blackhole blackhole) {
+    for (int i = 0; i < TouchStreams.EVENTS; i++) {
+      blackhole.consume(target.dispatchTouchEvent(stream[i]));
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation.benchmark;
+
+import android.view.MotionEvent;
+
+import org.robolectric.Shadows;
+import org.robolectric.shadows.ShadowMotionEvent;
+
+/**
+ * Builds synthetic, replayable touch streams for the benchmarks.
+ * <p>
+ * Every stream has exactly {@link #EVENTS} events so that one replay can be reported as a fixed
+ * number of operations: a DOWN, a POINTER_DOWN for the second finger, MOVEs, a POINTER_UP for the
+ * second finger, and an UP. During the MOVEs the fingers travel together, spread apart, and turn
+ * around their centroid, so every recognizer sees a steady stream of CHANGED events. Each finger
+ * keeps its place when the other one goes down or up.
+ * <p>
+ * Events are built with {@link MotionEvent#obtain(long, long, int, float, float, int)} and, for the
+ * second finger, {@link ShadowMotionEvent#setPointer2(float, float)}, which is all the pointer data
+ * the test runtime supports. Streams therefore have at most {@link #MAX_FINGERS} fingers. The
+ * events are built once per stream and never recycled.
+ */
+public final class TouchStreams {
+
+  /**
+   * The number of events in every stream.
+   */
+  public static final int EVENTS = 128;
+
+  /**
+   * The largest number of fingers in a stream.
+   */
+  public static final int MAX_FINGERS = 2;
+
+  private static final float CENTER_X = 100f;
+  private static final float CENTER_Y = 150f;
+  private static final float RADIUS = 40f;
+
+  private TouchStreams() {}
+
+  /**
+   * Creates a stream with 1 or 2 fingers.
+   */
+  public static MotionEvent[] create(int fingers) {
+    if (fingers < 1 || fingers > MAX_FINGERS) {
+      throw new IllegalArgumentException("Streams have 1 to " + MAX_FINGERS + " fingers");
+    }
+    MotionEvent[] events = new MotionEvent[EVENTS];
+    int moves = EVENTS - 2 * fingers;
+    int i = 0;
+    long eventTime = 0;
+
+    events[i++] = create(MotionEvent.ACTION_DOWN, 0, 1, 0, eventTime += 8);
+    if (fingers == 2) {
+      events[i++] = create(MotionEvent.ACTION_POINTER_DOWN, 1, 2, 0, eventTime += 8);
+    }
+    for (int step = 1; step <= moves; step++) {
+      events[i++] = create(MotionEvent.ACTION_MOVE, 0, fingers, step, eventTime += 8);
+    }
+    if (fingers == 2) {
+      events[i++] = create(MotionEvent.ACTION_POINTER_UP, 1, 2, moves, eventTime += 8);
+    }
+    events[i] = create(MotionEvent.ACTION_UP, 0, 1, moves, eventTime + 8);
+
+    return events;
+  }
+
+  private static MotionEvent create(
+    int action, int index, int pointerCount, int step, long eventTime) {
+    MotionEvent event = MotionEvent.obtain(
+      0,
+      eventTime,
+      action | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT),
+      getX(0, step),
+      getY(0, step),
+      0);
+    if (pointerCount == 2) {
+      ShadowMotionEvent shadowEvent = Shadows.shadowOf(event);
+      shadowEvent.setPointer2(getX(1, step), getY(1, step));
+      shadowEvent.setPointerIds(0, 1);
+      shadowEvent.setPointerIndex(index);
+    }
+    return event;
+  }
+
+  private static float getX(int id, int step) {
+    return CENTER_X + step + radius(step) * (float) Math.cos(angle(id, step));
+  }
+
+  private static float getY(int id, int step) {
+    return CENTER_Y + step + radius(step) * (float) Math.sin(angle(id, step));
+  }
+
+  private static float radius(int step) {
+    return RADIUS + step * 0.5f;
+  }
+
+  /**
+   * Returns the angle of the finger with the given pointer id around the centroid. The fingers
+   * are opposite each other, and the angle does not depend on how many are down.
+   */
+  private static double angle(int id, int step) {
+    return Math.PI * id + step * 0.01;
+  }
+}
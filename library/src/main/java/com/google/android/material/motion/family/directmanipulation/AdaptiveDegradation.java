@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Steps the direct manipulation of a target down to cheaper tiers of work while frame deadlines
+ * are missed, and back up when frames recover.
+ * <p>
+ * While gestures are active, the interval between animation frames is measured. A frame is late
+ * when it arrives more than one and a half frame intervals after the previous one. When
+ * {@value #LATE_FRAMES_TO_STEP_DOWN} of the last {@value #WINDOW} frames are late, the next tier is
+ * entered. After {@value #FRAMES_TO_STEP_UP} frames in a row are on time, the previous tier is
+ * restored. The tier is kept between gestures.
+ *
+ * @see ManipulationPlan#setAdaptiveDegradationEnabled(boolean)
+ */
+public final class AdaptiveDegradation {
+
+  /**
+   * Every event is applied as it arrives.
+   */
+  public static final int TIER_FULL = 0;
+  /**
+   * Only the latest move of each frame is given to the gesture recognizers.
+   */
+  public static final int TIER_SKIP_EVENTS = 1;
+  /**
+   * The pivot no longer follows the gesture's centroid. It is corrected when the gesture ends.
+   */
+  public static final int TIER_DEFER_PIVOT = 2;
+  /**
+   * The rotation is no longer updated while the pointers move.
+   */
+  public static final int TIER_NO_ROTATION = 3;
+
+  /**
+   * Listens for tier changes.
+   */
+  public interface Listener {
+
+    /**
+     * Called on the UI thread each time the tier changes.
+     */
+    void onTierChanged(AdaptiveDegradation degradation, int tier);
+  }
+
+  static final int WINDOW = 8;
+  static final int LATE_FRAMES_TO_STEP_DOWN = 2;
+  static final int FRAMES_TO_STEP_UP = 60;
+  private static final int WINDOW_MASK = (1 << WINDOW) - 1;
+  private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1000000000L / 60;
+
+  int tier = TIER_FULL;
+  @Nullable
+  private Listener listener;
+
+  private long frameIntervalNanos;
+  private long lastFrameNanos;
+  /**
+   * One bit per frame, the latest in the lowest bit, set for late frames.
+   */
+  private int history;
+  private int frames;
+  private int onTimeFrames;
+
+  AdaptiveDegradation() {}
+
+  /**
+   * Returns the current tier, from {@link #TIER_FULL} to {@link #TIER_NO_ROTATION}.
+   */
+  public int getTier() {
+    return tier;
+  }
+
+  public void setListener(@Nullable Listener listener) {
+    this.listener = listener;
+  }
+
+  boolean hasFrameInterval() {
+    return frameIntervalNanos != 0;
+  }
+
+  /**
+   * Sets the display's frame interval. A non-positive interval uses 60 frames per second.
+   */
+  void setFrameInterval(long frameIntervalNanos) {
+    this.frameIntervalNanos =
+      frameIntervalNanos > 0 ? frameIntervalNanos : DEFAULT_FRAME_INTERVAL_NANOS;
+  }
+
+  /**
+   * Starts a new run of consecutive frames. The time since the previous run is not measured.
+   */
+  void start() {
+    lastFrameNanos = 0;
+    if (frameIntervalNanos == 0) {
+      frameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+  }
+
+  /**
+   * Measures the frame at the given time, and changes the tier if needed.
+   */
+  void onFrame(long frameNanos) {
+    long previous = lastFrameNanos;
+    lastFrameNanos = frameNanos;
+    if (previous == 0) {
+      return;
+    }
+
+    boolean late = (frameNanos - previous) * 2 > frameIntervalNanos * 3;
+    history = (history << 1) | (late ? 1 : 0);
+    if (frames < WINDOW) {
+      frames++;
+    }
+
+    if (late) {
+      onTimeFrames = 0;
+      if (tier < TIER_NO_ROTATION
+        && frames == WINDOW
+        && Integer.bitCount(history & WINDOW_MASK) >= LATE_FRAMES_TO_STEP_DOWN) {
+        setTier(tier + 1);
+      }
+    } else if (++onTimeFrames >= FRAMES_TO_STEP_UP && tier > TIER_FULL) {
+      setTier(tier - 1);
+    }
+  }
+
+  private void setTier(int tier) {
+    this.tier = tier;
+    history = 0;
+    frames = 0;
+    onTimeFrames = 0;
+    if (listener != null) {
+      listener.onTierChanged(this, tier);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * A value that keeps moving with an exponentially decaying velocity.
+ */
+final class Decay {
+
+  /**
+   * The rate at which the velocity decays, per second. Matches the default friction of a fling.
+   */
+  private static final float FRICTION = 4.2f;
+
+  private final float minVelocity;
+
+  float value;
+  float velocity;
+
+  /**
+   * @param minVelocity The velocity, in units per second, below which the value is settled.
+   */
+  Decay(float minVelocity) {
+    this.minVelocity = minVelocity;
+  }
+
+  void start(float value, float velocity) {
+    this.value = value;
+    this.velocity = velocity;
+  }
+
+  /**
+   * Advances the value by the given time step.
+   *
+   * @return Whether the value is still moving.
+   */
+  boolean step(float seconds) {
+    value += velocity * seconds;
+    velocity *= (float) Math.exp(-FRICTION * seconds);
+    return Math.abs(velocity) >= minVelocity;
+  }
+}
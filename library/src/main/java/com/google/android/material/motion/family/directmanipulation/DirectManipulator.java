@@ -0,0 +1,1021 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.content.Context;
+import android.graphics.Matrix;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.WindowManager;
+import android.view.animation.AnimationUtils;
+
+import com.google.android.material.motion.family.directmanipulation.GesturePerformer.FrameCommitListener;
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer.GestureStateChangeListener;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming.IsActiveToken;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming.IsActiveTokenGenerator;
+
+/**
+ * Applies the drag, scale, and rotation of a set of {@link GestureRecognizer}s to a target view.
+ * <p>
+ * The target may be changed between gestures, which lets one instance and one set of gesture
+ * recognizers manipulate many views.
+ * <p>
+ * Each slot may have momentum: when its gesture is recognized, the release velocity is carried
+ * into a decaying motion that is stepped once per frame and stops at the next touch down.
+ */
+final class DirectManipulator implements TokenGestureListener.ActivityListener {
+
+  /**
+   * Listens for changes to the target's transform.
+   */
+  interface TransformListener {
+
+    /**
+     * Called each time the transform is written to the target, by a gesture or by momentum.
+     */
+    void onTransformCommitted(DirectManipulator manipulator);
+  }
+
+  /* Fixed slots of the gesture recognizer table. */
+  static final int DRAG = 0;
+  static final int SCALE = 1;
+  static final int ROTATE = 2;
+  static final int SLOT_COUNT = 3;
+
+  /**
+   * The slots whose gesture recognizers need at least two pointers to act on a move.
+   */
+  private static final int MULTI_POINTER_SLOTS = (1 << SCALE) | (1 << ROTATE);
+
+  /* Temporary variables. */
+  private final float[] array = new float[2];
+  private final Matrix matrix = new Matrix();
+  private final Matrix inverse = new Matrix();
+
+  /**
+   * The gesture recognizers, indexed by slot. A slot is in use if its bit is set in {@link
+   * #enabledSlots}.
+   */
+  private final GestureRecognizer[] gestureRecognizers = new GestureRecognizer[SLOT_COUNT];
+  private int enabledSlots;
+  private boolean routingEnabled = true;
+  private final TransformCore transform = new TransformCore();
+  private int transformDepth;
+
+  @Nullable
+  private View target;
+
+  private boolean frameAligned;
+  @Nullable
+  private FrameCommitListener frameCommitListener;
+  private boolean commitScheduled;
+  private int coalescedEvents;
+
+
+  /* Momentum. */
+  private static final float MIN_DRAG_VELOCITY = 20f;
+  private static final float MIN_SCALE_VELOCITY = 0.01f;
+  private static final float MIN_ROTATION_VELOCITY = 0.01f;
+  private static final float MIN_SCALE = 0.01f;
+  private final Decay dragX = new Decay(MIN_DRAG_VELOCITY);
+  private final Decay dragY = new Decay(MIN_DRAG_VELOCITY);
+  private final Decay scale = new Decay(MIN_SCALE_VELOCITY);
+  private final Decay rotation = new Decay(MIN_ROTATION_VELOCITY);
+  private int momentumSlots;
+  private int settlingSlots;
+  private long lastFrameTime;
+  private boolean momentumHeld;
+  @Nullable
+  private TransformListener transformListener;
+
+  /**
+   * Holds the performer's single {@link IsActiveToken} for the gestures and the momentum.
+   */
+  private final TokenGestureListener tokenGestureListener = new TokenGestureListener(this);
+
+  /* Hardware layer promotion. */
+  private boolean hardwareLayerEnabled;
+  @Nullable
+  private View promotedView;
+  private int previousLayerType;
+
+  /* Touch prediction. */
+  private final TouchPredictor predictor = new TouchPredictor();
+  private long predictionHorizonMillis;
+  /**
+   * The predicted movement of the centroid, in the target's untransformed coordinates.
+   */
+  private float predictedOffsetX;
+  private float predictedOffsetY;
+  /**
+   * The predicted movement of the centroid, in the target's coordinates.
+   */
+  private float predictedCentroidOffsetX;
+  private float predictedCentroidOffsetY;
+
+  /* Metrics. */
+  private static final int MAX_PENDING_EVENTS = 32;
+  @Nullable
+  private GestureMetrics metrics;
+  private final long[] pendingEventTimes = new long[MAX_PENDING_EVENTS];
+  private int pendingEventCount;
+  private boolean gesturesEnded;
+
+  /* Matrix target. */
+  @Nullable
+  private TargetMatrix targetMatrix;
+
+  private GestureCounters counters = new GestureCounters();
+  private boolean countingEnabled = true;
+
+  /* Lazy gesture recognizers. */
+  /**
+   * The slots whose gesture recognizer is created on touch-down rather than provided.
+   */
+  private int lazySlots;
+  private long releaseDelayMillis = -1;
+
+  /* Adaptive degradation. */
+  @Nullable
+  private AdaptiveDegradation degradation;
+  private boolean monitoringFrames;
+  /**
+   * The latest move, held until the next frame while events are skipped.
+   */
+  @Nullable
+  private MotionEvent pendingMove;
+
+  @Nullable
+  View getTarget() {
+    return target;
+  }
+
+  /**
+   * Sets the view that is manipulated. Any transform that is waiting for the next frame is first
+   * written to the previous target.
+   */
+  void setTarget(@Nullable View target) {
+    if (this.target != target) {
+      stopMomentum();
+      stopMonitoringFrames();
+      flushPendingMove();
+      releaseLazyGestureRecognizers();
+      restoreLayer();
+      if (this.target != null && commitScheduled) {
+        commit(this.target);
+      }
+      this.target = target;
+    }
+  }
+
+  /**
+   * Sets the generator of the token that is held while gestures are active or momentum settles.
+   */
+  void setIsActiveTokenGenerator(@Nullable IsActiveTokenGenerator isActiveTokenGenerator) {
+    tokenGestureListener.setIsActiveTokenGenerator(isActiveTokenGenerator);
+  }
+
+  /**
+   * Returns the listener that must observe every gesture recognizer after this manipulator, so
+   * that the token is held while they are active.
+   */
+  TokenGestureListener getTokenGestureListener() {
+    return tokenGestureListener;
+  }
+
+  /**
+   * Renders the target into a hardware layer while gestures are active, so that its content is not
+   * redrawn while it is transformed.
+   */
+  void setHardwareLayerEnabled(boolean hardwareLayerEnabled) {
+    this.hardwareLayerEnabled = hardwareLayerEnabled;
+  }
+
+  /**
+   * Promotes the target to a hardware layer, if enabled.
+   */
+  @Override
+  public void onGesturesActive() {
+    if (hardwareLayerEnabled && target != null && promotedView == null) {
+      previousLayerType = target.getLayerType();
+      if (previousLayerType != View.LAYER_TYPE_HARDWARE) {
+        target.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+        promotedView = target;
+      }
+    }
+    if (degradation != null && target != null && !monitoringFrames) {
+      if (!degradation.hasFrameInterval()) {
+        degradation.setFrameInterval(getFrameIntervalNanos(target.getContext()));
+      }
+      degradation.start();
+      monitoringFrames = true;
+      target.removeCallbacks(degradationFrame);
+      ViewCompat.postOnAnimation(target, degradationFrame);
+    }
+  }
+
+  @Override
+  public void onGesturesIdle() {
+    restoreLayer();
+    stopMonitoringFrames();
+    gesturesEnded = true;
+  }
+
+  /**
+   * Restores the layer type that the target had before it was promoted.
+   */
+  private void restoreLayer() {
+    if (promotedView != null) {
+      promotedView.setLayerType(previousLayerType, null);
+      promotedView = null;
+    }
+  }
+
+  /**
+   * Extrapolates the centroid of the pointers by the given horizon before it is applied. A
+   * horizon of 0 disables prediction.
+   */
+  void setPrediction(long horizonMillis, @Nullable PredictionStatistics statistics) {
+    predictionHorizonMillis = horizonMillis;
+    predictor.setStatistics(statistics);
+    clearPrediction();
+  }
+
+  /**
+   * Records latencies into the given metrics, or stops recording if null.
+   */
+  void setMetrics(@Nullable GestureMetrics metrics) {
+    this.metrics = metrics;
+    pendingEventCount = 0;
+  }
+
+  /**
+   * Composes the gestures into the given matrix instead of the target's properties, or writes the
+   * target's properties again if null.
+   */
+  void setTargetMatrix(@Nullable Matrix matrix) {
+    targetMatrix = matrix != null ? new TargetMatrix(matrix) : null;
+  }
+
+  /**
+   * Composes the gestures into the given shared transform instead of the target's properties, and
+   * publishes it for another thread to read.
+   */
+  void setSharedTransform(SharedTransform sharedTransform) {
+    targetMatrix = new TargetMatrix(sharedTransform);
+  }
+
+  /**
+   * Dispatches every event to every gesture recognizer if disabled. Only used to compare against
+   * routing.
+   */
+  @VisibleForTesting
+  void setRoutingEnabled(boolean routingEnabled) {
+    this.routingEnabled = routingEnabled;
+  }
+
+  /**
+   * Skips counting state changes and pivot recomputations if disabled. Only used to measure the
+   * cost of the counters.
+   */
+  @VisibleForTesting
+  void setCountingEnabled(boolean countingEnabled) {
+    this.countingEnabled = countingEnabled;
+  }
+
+  /**
+   * Counts gestures, pivot recomputations, and tokens into the given counters.
+   */
+  void setCounters(GestureCounters counters) {
+    this.counters = counters;
+    tokenGestureListener.setCounters(counters);
+  }
+
+  /**
+   * Steps down to cheaper work while frames are late, or always does the full work if null.
+   */
+  void setAdaptiveDegradation(@Nullable AdaptiveDegradation degradation) {
+    this.degradation = degradation;
+  }
+
+  void setMomentumEnabled(int slot, boolean enabled) {
+    if (enabled) {
+      momentumSlots |= 1 << slot;
+    } else {
+      momentumSlots &= ~(1 << slot);
+    }
+  }
+
+  void setTransformListener(@Nullable TransformListener transformListener) {
+    this.transformListener = transformListener;
+  }
+
+  void setFrameAligned(boolean frameAligned) {
+    this.frameAligned = frameAligned;
+  }
+
+  void setFrameCommitListener(@Nullable FrameCommitListener frameCommitListener) {
+    this.frameCommitListener = frameCommitListener;
+  }
+
+  /**
+   * Puts a gesture recognizer in the given slot and starts observing it.
+   */
+  void setGestureRecognizer(int slot, GestureRecognizer gestureRecognizer) {
+    gestureRecognizer.addStateChangeListener(getGestureListener(slot));
+    gestureRecognizers[slot] = gestureRecognizer;
+    enabledSlots |= 1 << slot;
+  }
+
+  /**
+   * Enables the given slot without a gesture recognizer. A default one is created for the target
+   * on each touch-down that finds the slot empty.
+   */
+  void setLazyGestureRecognizer(int slot) {
+    lazySlots |= 1 << slot;
+  }
+
+  /**
+   * Empties the slots of lazily created gesture recognizers once no pointer has been down for the
+   * given delay, in milliseconds. A negative delay keeps them.
+   */
+  void setRecognizerReleaseDelay(long releaseDelayMillis) {
+    this.releaseDelayMillis = releaseDelayMillis;
+  }
+
+  /**
+   * Creates a gesture recognizer with the default slop for the given slot.
+   */
+  private static GestureRecognizer createGestureRecognizer(int slot) {
+    switch (slot) {
+      case DRAG:
+        return new DragGestureRecognizer();
+      case SCALE:
+        return new ScaleGestureRecognizer();
+      case ROTATE:
+        return new RotateGestureRecognizer();
+      default:
+        throw new IllegalArgumentException("Unknown slot " + slot);
+    }
+  }
+
+  /**
+   * Empties the given slot. A lazy slot is no longer filled, and once no lazy slot is left, the
+   * pending release is cancelled.
+   *
+   * @return The gesture recognizer that was in the slot, or null.
+   */
+  @Nullable
+  GestureRecognizer removeGestureRecognizer(int slot) {
+    GestureRecognizer gestureRecognizer = gestureRecognizers[slot];
+    gestureRecognizers[slot] = null;
+    enabledSlots &= ~(1 << slot);
+    lazySlots &= ~(1 << slot);
+    if (lazySlots == 0 && target != null) {
+      target.removeCallbacks(recognizerRelease);
+    }
+    return gestureRecognizer;
+  }
+
+  boolean isLazy(int slot) {
+    return (lazySlots & (1 << slot)) != 0;
+  }
+
+  @Nullable
+  GestureRecognizer getGestureRecognizer(int slot) {
+    return gestureRecognizers[slot];
+  }
+
+  boolean isEnabled(int slot) {
+    return (enabledSlots & (1 << slot)) != 0;
+  }
+
+  private GestureStateChangeListener getGestureListener(int slot) {
+    switch (slot) {
+      case DRAG:
+        return dragGestureListener;
+      case SCALE:
+        return scaleGestureListener;
+      case ROTATE:
+        return rotateGestureListener;
+      default:
+        throw new IllegalArgumentException("Unknown slot " + slot);
+    }
+  }
+
+  /**
+   * Delegates a touch event to all the gesture recognizers, then writes the accumulated transform
+   * to the target.
+   * <p>
+   * While intermediate events are skipped, a move is held until the next frame and replaced by any
+   * newer move. Any other event first applies the held move, so no pointer change is lost.
+   */
+  boolean onTouchEvent(MotionEvent event) {
+    if (degradation != null) {
+      if (monitoringFrames
+        && degradation.tier >= AdaptiveDegradation.TIER_SKIP_EVENTS
+        && event.getActionMasked() == MotionEvent.ACTION_MOVE) {
+        if (pendingMove != null) {
+          pendingMove.recycle();
+        }
+        pendingMove = MotionEvent.obtain(event);
+        return true;
+      }
+      flushPendingMove();
+    }
+    return dispatch(event);
+  }
+
+  private boolean dispatch(MotionEvent event) {
+    boolean handled = false;
+    int action = event.getActionMasked();
+
+    if (action == MotionEvent.ACTION_DOWN) {
+      stopMomentum();
+      if (lazySlots != 0) {
+        createLazyGestureRecognizers();
+      }
+    }
+    if (predictionHorizonMillis > 0) {
+      predict(event);
+    }
+
+    coalescedEvents++;
+    if (metrics != null && pendingEventCount < MAX_PENDING_EVENTS) {
+      pendingEventTimes[pendingEventCount++] = event.getEventTime();
+    }
+
+    beginTransform();
+    for (int slot = 0; slot < SLOT_COUNT; slot++) {
+      if (isEnabled(slot) && accepts(slot, event)) {
+        if (metrics != null) {
+          long start = System.nanoTime();
+          handled |= gestureRecognizers[slot].onTouchEvent(event);
+          metrics.recognizers[slot].record((System.nanoTime() - start) / 1000);
+        } else {
+          handled |= gestureRecognizers[slot].onTouchEvent(event);
+        }
+      }
+    }
+    endTransform();
+
+    if (gesturesEnded) {
+      gesturesEnded = false;
+      if (metrics != null && metrics.listener != null) {
+        metrics.listener.onGesturesEnded(metrics);
+      }
+    }
+
+    if ((action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL)
+      && lazySlots != 0
+      && releaseDelayMillis >= 0) {
+      target.postDelayed(recognizerRelease, releaseDelayMillis);
+    }
+
+    return handled;
+  }
+
+  /**
+   * Returns whether the gesture recognizer in the given slot can act on the event.
+   * <p>
+   * A pinch or rotation cannot begin or change while only one pointer moves, so single-pointer
+   * moves are skipped for idle multi-pointer recognizers. Every other event is dispatched, so that
+   * pointer bookkeeping and state transitions are exactly the same as without routing. Moves are
+   * also skipped for the rotation while it is degraded.
+   */
+  private boolean accepts(int slot, MotionEvent event) {
+    if (slot == ROTATE
+      && degradation != null
+      && degradation.tier >= AdaptiveDegradation.TIER_NO_ROTATION
+      && event.getActionMasked() == MotionEvent.ACTION_MOVE) {
+      return false;
+    }
+    if (!routingEnabled
+      || (MULTI_POINTER_SLOTS & (1 << slot)) == 0
+      || event.getActionMasked() != MotionEvent.ACTION_MOVE
+      || event.getPointerCount() >= 2) {
+      return true;
+    }
+    int state = gestureRecognizers[slot].getState();
+    return state == GestureRecognizer.BEGAN || state == GestureRecognizer.CHANGED;
+  }
+
+  /**
+   * Returns whether any slot is still settling with momentum.
+   */
+  boolean isSettling() {
+    return settlingSlots != 0;
+  }
+
+  boolean isGestureActive() {
+    for (int slot = 0; slot < SLOT_COUNT; slot++) {
+      if (isEnabled(slot)) {
+        int state = gestureRecognizers[slot].getState();
+        if (state == GestureRecognizer.BEGAN || state == GestureRecognizer.CHANGED) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  private final GestureStateChangeListener dragGestureListener = new GestureStateChangeListener() {
+
+    @Override
+    public void onStateChanged(GestureRecognizer gestureRecognizer) {
+      if (countingEnabled) {
+        counters.onStateChanged(DRAG, gestureRecognizer.getState());
+      }
+      if (targetMatrix != null) {
+        onTargetMatrixStateChanged(DRAG, gestureRecognizer);
+        return;
+      }
+      beginTransform();
+      switch (gestureRecognizer.getState()) {
+        case GestureRecognizer.BEGAN:
+          transform.beginDrag();
+          break;
+        case GestureRecognizer.CHANGED:
+          float translationX = ((DragGestureRecognizer) gestureRecognizer).getTranslationX();
+          float translationY = ((DragGestureRecognizer) gestureRecognizer).getTranslationY();
+
+          transform.drag(translationX + predictedOffsetX, translationY + predictedOffsetY);
+          break;
+        case GestureRecognizer.RECOGNIZED:
+          DragGestureRecognizer dragGestureRecognizer = (DragGestureRecognizer) gestureRecognizer;
+          if (predictionHorizonMillis > 0) {
+            // Replace the last predicted translation with the real one.
+            transform.drag(
+              dragGestureRecognizer.getTranslationX(), dragGestureRecognizer.getTranslationY());
+          }
+          if (hasMomentum(DRAG)) {
+            dragX.start(
+              dragGestureRecognizer.getTranslationX(), dragGestureRecognizer.getVelocityX());
+            dragY.start(
+              dragGestureRecognizer.getTranslationY(), dragGestureRecognizer.getVelocityY());
+            startMomentum(DRAG);
+          }
+          break;
+      }
+      endTransform();
+    }
+  };
+
+  private final GestureStateChangeListener scaleGestureListener = new GestureStateChangeListener() {
+
+    @Override
+    public void onStateChanged(GestureRecognizer gestureRecognizer) {
+      if (countingEnabled) {
+        counters.onStateChanged(SCALE, gestureRecognizer.getState());
+      }
+      if (targetMatrix != null) {
+        onTargetMatrixStateChanged(SCALE, gestureRecognizer);
+        return;
+      }
+      beginTransform();
+      switch (gestureRecognizer.getState()) {
+        case GestureRecognizer.BEGAN:
+          transform.beginScale();
+          break;
+        case GestureRecognizer.CHANGED:
+          float scale = ((ScaleGestureRecognizer) gestureRecognizer).getScale();
+
+          transform.scale(scale);
+
+          if (isEnabled(DRAG)) {
+            requestPivotToCentroid(gestureRecognizer);
+          }
+          break;
+        case GestureRecognizer.RECOGNIZED:
+          if (hasMomentum(SCALE)) {
+            ScaleGestureRecognizer scaleGestureRecognizer =
+              (ScaleGestureRecognizer) gestureRecognizer;
+            scale.start(scaleGestureRecognizer.getScale(), scaleGestureRecognizer.getVelocity());
+            startMomentum(SCALE);
+          }
+          // fall through
+        case GestureRecognizer.CANCELLED:
+          if (isEnabled(DRAG)) {
+            transform.requestResetPivot();
+          }
+          break;
+      }
+      endTransform();
+    }
+  };
+
+  private final GestureStateChangeListener rotateGestureListener = new GestureStateChangeListener() {
+
+    @Override
+    public void onStateChanged(GestureRecognizer gestureRecognizer) {
+      if (countingEnabled) {
+        counters.onStateChanged(ROTATE, gestureRecognizer.getState());
+      }
+      if (targetMatrix != null) {
+        onTargetMatrixStateChanged(ROTATE, gestureRecognizer);
+        return;
+      }
+      beginTransform();
+      switch (gestureRecognizer.getState()) {
+        case GestureRecognizer.BEGAN:
+          transform.beginRotation();
+          break;
+        case GestureRecognizer.CHANGED:
+          float rotation = ((RotateGestureRecognizer) gestureRecognizer).getRotation();
+
+          transform.rotate(rotation);
+
+          if (isEnabled(DRAG)) {
+            requestPivotToCentroid(gestureRecognizer);
+          }
+          break;
+        case GestureRecognizer.RECOGNIZED:
+          if (hasMomentum(ROTATE)) {
+            RotateGestureRecognizer rotateGestureRecognizer =
+              (RotateGestureRecognizer) gestureRecognizer;
+            rotation.start(
+              rotateGestureRecognizer.getRotation(), rotateGestureRecognizer.getVelocity());
+            startMomentum(ROTATE);
+          }
+          // fall through
+        case GestureRecognizer.CANCELLED:
+          if (isEnabled(DRAG)) {
+            transform.requestResetPivot();
+          }
+          break;
+      }
+      endTransform();
+    }
+  };
+
+  private void onTargetMatrixStateChanged(int slot, GestureRecognizer gestureRecognizer) {
+    beginTransform();
+    targetMatrix.onStateChanged(slot, gestureRecognizer);
+    endTransform();
+  }
+
+  private boolean hasMomentum(int slot) {
+    return (momentumSlots & (1 << slot)) != 0;
+  }
+
+  /**
+   * Starts settling the given slot. The first slot to start holds the {@link IsActiveToken} and
+   * schedules the first frame.
+   */
+  private void startMomentum(int slot) {
+    if (settlingSlots == 0) {
+      if (!momentumHeld) {
+        momentumHeld = true;
+        tokenGestureListener.acquire();
+      }
+      lastFrameTime = AnimationUtils.currentAnimationTimeMillis();
+      ViewCompat.postOnAnimation(target, momentumFrame);
+    }
+    settlingSlots |= 1 << slot;
+  }
+
+  /**
+   * Stops all momentum where it is and releases its hold on the {@link IsActiveToken}.
+   */
+  private void stopMomentum() {
+    if (settlingSlots != 0) {
+      settlingSlots = 0;
+      target.removeCallbacks(momentumFrame);
+    }
+    if (momentumHeld) {
+      momentumHeld = false;
+      tokenGestureListener.release();
+    }
+  }
+
+  /**
+   * Steps every settling slot by the time since the previous frame.
+   */
+  private final Runnable momentumFrame = new Runnable() {
+    @Override
+    public void run() {
+      long frameTime = AnimationUtils.currentAnimationTimeMillis();
+      float seconds = (frameTime - lastFrameTime) / 1000f;
+      lastFrameTime = frameTime;
+
+      beginTransform();
+      if ((settlingSlots & (1 << DRAG)) != 0) {
+        boolean moving = dragX.step(seconds) | dragY.step(seconds);
+        transform.drag(dragX.value, dragY.value);
+        if (!moving) {
+          settlingSlots &= ~(1 << DRAG);
+        }
+      }
+      if ((settlingSlots & (1 << SCALE)) != 0) {
+        boolean moving = scale.step(seconds);
+        if (scale.value < MIN_SCALE) {
+          scale.value = MIN_SCALE;
+          moving = false;
+        }
+        transform.scale(scale.value);
+        if (!moving) {
+          settlingSlots &= ~(1 << SCALE);
+        }
+      }
+      if ((settlingSlots & (1 << ROTATE)) != 0) {
+        boolean moving = rotation.step(seconds);
+        transform.rotate(rotation.value);
+        if (!moving) {
+          settlingSlots &= ~(1 << ROTATE);
+        }
+      }
+      endTransform();
+
+      if (settlingSlots != 0) {
+        ViewCompat.postOnAnimation(target, this);
+      } else {
+        stopMomentum();
+      }
+    }
+  };
+
+  /**
+   * Measures each frame while gestures are active, and applies the move held for it.
+   */
+  private final Runnable degradationFrame = new Runnable() {
+    @Override
+    public void run() {
+      if (monitoringFrames) {
+        degradation.onFrame(System.nanoTime());
+        flushPendingMove();
+        ViewCompat.postOnAnimation(target, this);
+      }
+    }
+  };
+
+  private void stopMonitoringFrames() {
+    if (monitoringFrames) {
+      monitoringFrames = false;
+      target.removeCallbacks(degradationFrame);
+    }
+  }
+
+  private void flushPendingMove() {
+    if (pendingMove != null) {
+      MotionEvent move = pendingMove;
+      pendingMove = null;
+      dispatch(move);
+      move.recycle();
+    }
+  }
+
+  /**
+   * Fills the empty lazy slots with new gesture recognizers, observed the same way as provided
+   * ones, and cancels any pending release.
+   */
+  private void createLazyGestureRecognizers() {
+    target.removeCallbacks(recognizerRelease);
+    for (int slot = 0; slot < SLOT_COUNT; slot++) {
+      if ((lazySlots & (1 << slot)) != 0 && gestureRecognizers[slot] == null) {
+        GestureRecognizer gestureRecognizer = createGestureRecognizer(slot);
+        gestureRecognizer.setElement(target);
+        setGestureRecognizer(slot, gestureRecognizer);
+        gestureRecognizer.addStateChangeListener(tokenGestureListener);
+      }
+    }
+  }
+
+  /**
+   * Drops the lazily created gesture recognizers and their per-gesture state. Momentum keeps
+   * settling without them.
+   */
+  private final Runnable recognizerRelease = new Runnable() {
+    @Override
+    public void run() {
+      releaseLazyGestureRecognizers();
+    }
+  };
+
+  private void releaseLazyGestureRecognizers() {
+    if (lazySlots == 0) {
+      return;
+    }
+    if (target != null) {
+      target.removeCallbacks(recognizerRelease);
+    }
+    for (int slot = 0; slot < SLOT_COUNT; slot++) {
+      if ((lazySlots & (1 << slot)) != 0 && gestureRecognizers[slot] != null) {
+        gestureRecognizers[slot].setElement(null);
+        gestureRecognizers[slot] = null;
+        enabledSlots &= ~(1 << slot);
+      }
+    }
+  }
+
+  private static long getFrameIntervalNanos(Context context) {
+    WindowManager windowManager = (WindowManager) context.getSystemService(Context.WINDOW_SERVICE);
+    float refreshRate = windowManager.getDefaultDisplay().getRefreshRate();
+    return refreshRate >= 1f ? (long) (1000000000L / refreshRate) : 0;
+  }
+
+  private void requestPivotToCentroid(GestureRecognizer gestureRecognizer) {
+    if (degradation != null && degradation.tier >= AdaptiveDegradation.TIER_DEFER_PIVOT) {
+      return;
+    }
+    transform.requestPivotToCentroid(
+      gestureRecognizer.getCentroidX() + predictedCentroidOffsetX,
+      gestureRecognizer.getCentroidY() + predictedCentroidOffsetY);
+  }
+
+  /**
+   * Feeds the centroid of the event and its historical samples to the predictor, and updates the
+   * predicted offsets. Prediction restarts whenever the set of pointers changes, and is off once
+   * the last pointer is up so that the final transform is exact.
+   */
+  private void predict(MotionEvent event) {
+    if (event.getActionMasked() != MotionEvent.ACTION_MOVE) {
+      predictor.reset();
+      clearPrediction();
+      return;
+    }
+
+    GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
+    int pointerCount = event.getPointerCount();
+    for (int h = 0, historySize = event.getHistorySize(); h < historySize; h++) {
+      float x = 0f;
+      float y = 0f;
+      for (int i = 0; i < pointerCount; i++) {
+        x += event.getHistoricalX(i, h);
+        y += event.getHistoricalY(i, h);
+      }
+      addPredictorSample(event.getHistoricalEventTime(h), x / pointerCount, y / pointerCount);
+    }
+    float x = 0f;
+    float y = 0f;
+    for (int i = 0; i < pointerCount; i++) {
+      x += event.getX(i);
+      y += event.getY(i);
+    }
+    addPredictorSample(event.getEventTime(), x / pointerCount, y / pointerCount);
+
+    if (predictor.predict(predictionHorizonMillis)) {
+      predictedOffsetX = predictor.offsetX;
+      predictedOffsetY = predictor.offsetY;
+      array[0] = predictedOffsetX;
+      array[1] = predictedOffsetY;
+      inverse.mapVectors(array);
+      predictedCentroidOffsetX = array[0];
+      predictedCentroidOffsetY = array[1];
+    } else {
+      clearPrediction();
+    }
+  }
+
+  private void addPredictorSample(long time, float x, float y) {
+    array[0] = x;
+    array[1] = y;
+    matrix.mapPoints(array);
+    predictor.addSample(time, array[0], array[1]);
+  }
+
+  private void clearPrediction() {
+    predictedOffsetX = 0f;
+    predictedOffsetY = 0f;
+    predictedCentroidOffsetX = 0f;
+    predictedCentroidOffsetY = 0f;
+  }
+
+  /**
+   * Starts accumulating transform changes. Changes are accumulated until the outermost {@link
+   * #endTransform()}, so recognizers that are driven from outside of {@link
+   * #onTouchEvent(MotionEvent)} are still applied.
+   * <p>
+   * A frame-aligned manipulator keeps accumulating across events until its frame commit runs.
+   */
+  private void beginTransform() {
+    if (transformDepth++ == 0 && !commitScheduled) {
+      transform.read(
+        target.getTranslationX(),
+        target.getTranslationY(),
+        target.getScaleX(),
+        target.getScaleY(),
+        target.getRotation(),
+        target.getPivotX(),
+        target.getPivotY());
+    }
+  }
+
+  private void endTransform() {
+    if (--transformDepth == 0) {
+      if (frameAligned && isGestureActive()) {
+        if (!commitScheduled) {
+          commitScheduled = true;
+          ViewCompat.postOnAnimation(target, frameCommit);
+        }
+      } else {
+        commit(target);
+      }
+    }
+  }
+
+  /**
+   * Writes the transform accumulated since the last frame. Posted through {@link
+   * ViewCompat#postOnAnimation(View, Runnable)}, which uses the {@link android.view.Choreographer}
+   * where it is available.
+   */
+  private final Runnable frameCommit = new Runnable() {
+    @Override
+    public void run() {
+      if (commitScheduled) {
+        commit(target);
+      }
+    }
+  };
+
+  private void commit(View target) {
+    if (commitScheduled) {
+      commitScheduled = false;
+      target.removeCallbacks(frameCommit);
+    }
+
+    int events = coalescedEvents;
+    coalescedEvents = 0;
+
+    boolean written = commitTransform(target);
+    if (written && transformListener != null) {
+      transformListener.onTransformCommitted(this);
+    }
+
+    if (metrics != null) {
+      if (written) {
+        recordEventLatencies();
+      }
+      pendingEventCount = 0;
+    }
+
+    if (frameAligned && frameCommitListener != null && events > 0) {
+      frameCommitListener.onFrameCommitted(target, events);
+    }
+  }
+
+  /**
+   * Writes the transform accumulated during one event to the target. Each property is written at
+   * most once, and the pivot is compensated once no matter how many recognizers asked for it.
+   */
+  private boolean commitTransform(View target) {
+    if (targetMatrix != null) {
+      return targetMatrix.write(target);
+    }
+    if (!transform.isDirty()) {
+      return false;
+    }
+
+    int changed = transform.commit(target.getWidth(), target.getHeight());
+
+    if ((changed & TransformCore.SCALE) != 0) {
+      target.setScaleX(transform.scaleX);
+      target.setScaleY(transform.scaleY);
+    }
+    if ((changed & TransformCore.ROTATION) != 0) {
+      target.setRotation(transform.rotation);
+    }
+    if ((changed & TransformCore.PIVOT) != 0) {
+      target.setPivotX(transform.pivotX);
+      target.setPivotY(transform.pivotY);
+      if (countingEnabled) {
+        counters.onPivotRecomputed();
+      }
+    }
+    if ((changed & TransformCore.TRANSLATION) != 0) {
+      target.setTranslationX(transform.translationX);
+      target.setTranslationY(transform.translationY);
+    }
+    return true;
+  }
+
+  /**
+   * Records the time from each event since the previous write to now. Event times share the
+   * monotonic clock of {@link System#nanoTime()}.
+   */
+  private void recordEventLatencies() {
+    long nowMicros = System.nanoTime() / 1000;
+    for (int i = 0; i < pendingEventCount; i++) {
+      metrics.eventToWrite.record(nowMicros - pendingEventTimes[i] * 1000);
+    }
+  }
+}
@@ -22,6 +22,8 @@ import android.view.View;
 import com.google.android.material.motion.gestures.DragGestureRecognizer;
 import com.google.android.material.motion.gestures.RotateGestureRecognizer;
 import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.NamedPerformer;
+import com.google.android.material.motion.runtime.NamedPlan;
 import com.google.android.material.motion.runtime.Performer;
 import com.google.android.material.motion.runtime.PerformerFeatures.ComposablePerforming;
 import com.google.android.material.motion.runtime.Plan;
@@ -29,20 +31,29 @@ import com.google.android.material.motion.runtime.Plan;
 /**
  * Makes the target draggable, pinchable, and rotatable.
  * <p>
+ * The options apply to the {@link Draggable}, {@link Pinchable}, and {@link Rotatable} plans that
+ * this plan composes to. This plan can not be added or removed by name.
+ * <p>
  * Note that this will overwrite the {@link Performer#target target}'s {@link
  * View.OnTouchListener}.
  */
-public class DirectlyManipulable extends Plan<View> {
+public class DirectlyManipulable extends ManipulationPlan {
 
+  /* Provided gesture recognizers, or null for those created on the target's first touch-down. */
   @VisibleForTesting
+  @Nullable
   final DragGestureRecognizer dragGestureRecognizer;
   @VisibleForTesting
+  @Nullable
   final ScaleGestureRecognizer scaleGestureRecognizer;
   @VisibleForTesting
+  @Nullable
   final RotateGestureRecognizer rotateGestureRecognizer;
 
   /**
-   * Creates a plan with a new drag, pinch, and rotation gesture recognizer.
+   * Creates a plan with a new drag, pinch, and rotation gesture recognizer. The gesture
+   * recognizers are only created when the target is first touched, so that targets that are never
+   * touched cost no more than their touch listener.
    */
   public DirectlyManipulable() {
     this(null, null, null);
@@ -50,29 +61,27 @@ public class DirectlyManipulable extends Plan<View> {
 
   /**
    * Creates a plan with existing gesture recognizers. Events generated by the provided gesture
-   * recognizers will be observed.
+   * recognizers will be observed. A new gesture recognizer is created on the target's first
+   * touch-down for each one that is null.
    */
   public DirectlyManipulable(
     @Nullable DragGestureRecognizer dragGestureRecognizer,
     @Nullable ScaleGestureRecognizer scaleGestureRecognizer,
     @Nullable RotateGestureRecognizer rotateGestureRecognizer) {
-    this.dragGestureRecognizer = dragGestureRecognizer != null
-      ? dragGestureRecognizer : new DragGestureRecognizer();
-    this.scaleGestureRecognizer = scaleGestureRecognizer != null
-      ? scaleGestureRecognizer : new ScaleGestureRecognizer();
-    this.rotateGestureRecognizer = rotateGestureRecognizer != null
-      ? rotateGestureRecognizer : new RotateGestureRecognizer();
+    this.dragGestureRecognizer = dragGestureRecognizer;
+    this.scaleGestureRecognizer = scaleGestureRecognizer;
+    this.rotateGestureRecognizer = rotateGestureRecognizer;
   }
 
   @Override
-  public Class<? extends Performer<View>> getPerformerClass() {
+  public Class<? extends NamedPerformer<View>> getPerformerClass() {
     return DirectlyManipulablePerformer.class;
   }
 
   /**
    * A performer that composes to {@link Draggable}, {@link Pinchable}, and {@link Rotatable}.
    */
-  public static class DirectlyManipulablePerformer extends Performer<View>
+  public static class DirectlyManipulablePerformer extends NamedPerformer<View>
     implements ComposablePerforming<View> {
 
     private PlanEmitter<View> planEmitter;
@@ -80,14 +89,33 @@ public class DirectlyManipulable extends Plan<View> {
     @Override
     public void addPlan(Plan<View> plan) {
       DirectlyManipulable directlyManipulable = (DirectlyManipulable) plan;
-      planEmitter.emit(new Draggable(directlyManipulable.dragGestureRecognizer));
-      planEmitter.emit(new Pinchable(directlyManipulable.scaleGestureRecognizer));
-      planEmitter.emit(new Rotatable(directlyManipulable.rotateGestureRecognizer));
+      emit(new Draggable(directlyManipulable.dragGestureRecognizer), directlyManipulable);
+      emit(new Pinchable(directlyManipulable.scaleGestureRecognizer), directlyManipulable);
+      emit(new Rotatable(directlyManipulable.rotateGestureRecognizer), directlyManipulable);
+    }
+
+    @Override
+    public void addPlan(NamedPlan<View> plan, String name) {
+      throw new UnsupportedOperationException("DirectlyManipulable can not be added by name.");
+    }
+
+    @Override
+    public void removePlan(String name) {
+      throw new UnsupportedOperationException("DirectlyManipulable can not be removed by name.");
     }
 
     @Override
     public void setPlanEmitter(PlanEmitter<View> planEmitter) {
       this.planEmitter = planEmitter;
     }
+
+    /**
+     * Emits the plan of one gesture. A plan without a gesture recognizer only reserves its slot.
+     */
+    private void emit(GesturePlan plan, DirectlyManipulable directlyManipulable) {
+      plan.options = directlyManipulable.options;
+      plan.momentumEnabled = directlyManipulable.momentumEnabled;
+      planEmitter.emit(plan);
+    }
   }
 }
@@ -0,0 +1,566 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.view.MotionEvent;
+import android.view.MotionEvent.PointerCoords;
+import android.view.MotionEvent.PointerProperties;
+import android.view.View;
+import android.view.View.OnLayoutChangeListener;
+import android.view.View.OnTouchListener;
+import android.view.ViewGroup;
+
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.Performer;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming;
+import com.google.android.material.motion.runtime.Plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Makes every child of the target {@link ViewGroup} draggable, pinchable, and rotatable.
+ * <p>
+ * A single set of gesture recognizers is shared by all of the children. When a gesture starts, the
+ * topmost child under the touch is found through a spatial index of the children's transformed
+ * bounds and is manipulated until the gesture ends. Memory and touch dispatch cost therefore stay
+ * flat as the number of children grows.
+ * <p>
+ * Children should not consume touch events themselves. Note that this will overwrite the {@link
+ * Performer#target target}'s {@link OnTouchListener}.
+ */
+public class DirectlyManipulableChildren extends Plan<ViewGroup> {
+
+  @VisibleForTesting
+  final DragGestureRecognizer dragGestureRecognizer;
+  @VisibleForTesting
+  final ScaleGestureRecognizer scaleGestureRecognizer;
+  @VisibleForTesting
+  final RotateGestureRecognizer rotateGestureRecognizer;
+  boolean pointerRouting;
+  /**
+   * The performers of this plan. Shared with the copies of the plan that the runtime makes.
+   */
+  private final ArrayList<DirectlyManipulableChildrenPerformer> performers = new ArrayList<>();
+
+  /**
+   * Creates a plan with a new drag, pinch, and rotation gesture recognizer.
+   */
+  public DirectlyManipulableChildren() {
+    this(new DragGestureRecognizer(), new ScaleGestureRecognizer(), new RotateGestureRecognizer());
+  }
+
+  /**
+   * Creates a plan with existing gesture recognizers. The gesture recognizers' element is changed
+   * to the child being manipulated at the start of every gesture.
+   */
+  public DirectlyManipulableChildren(
+    DragGestureRecognizer dragGestureRecognizer,
+    ScaleGestureRecognizer scaleGestureRecognizer,
+    RotateGestureRecognizer rotateGestureRecognizer) {
+    this.dragGestureRecognizer = dragGestureRecognizer;
+    this.scaleGestureRecognizer = scaleGestureRecognizer;
+    this.rotateGestureRecognizer = rotateGestureRecognizer;
+  }
+
+  /**
+   * Routes each pointer to the child it went down on, so that several children can be
+   * manipulated at the same time, for example by several people at a table. Each child only
+   * receives its own pointers.
+   * <p>
+   * The plan's gesture recognizers manipulate the first child. Every other child that is
+   * manipulated at the same time gets its own gesture recognizers, created once with the same
+   * slop. The target consumes every touch, so that a finger that lands on a child after one that
+   * missed is still routed. Historical samples are not carried to the children.
+   */
+  public void setPointerRouting(boolean pointerRouting) {
+    this.pointerRouting = pointerRouting;
+  }
+
+  /**
+   * Moves the child's entry in the spatial index to its current bounds. Call this after changing
+   * the child's transform outside of the plan's gestures, for example programmatically, so that
+   * touches find it where it is drawn.
+   */
+  public void invalidateChild(View child) {
+    for (int i = 0, count = performers.size(); i < count; i++) {
+      performers.get(i).invalidateChild(child);
+    }
+  }
+
+  @Override
+  public Class<? extends Performer<ViewGroup>> getPerformerClass() {
+    return DirectlyManipulableChildrenPerformer.class;
+  }
+
+  /**
+   * A performer that routes each gesture on a {@link ViewGroup} to the child that was touched.
+   */
+  public static class DirectlyManipulableChildrenPerformer extends Performer<ViewGroup>
+    implements ContinuousPerforming {
+
+    /**
+     * The size of a spatial index cell, in pixels.
+     */
+    private static final int CELL_SIZE = 128;
+
+    /**
+     * The largest pointer id that is routed. Pointer ids are small and reused, so higher ids are
+     * only seen with more simultaneous fingers than any touch panel reports.
+     */
+    private static final int MAX_POINTER_ID = 31;
+
+    /* Temporary variables. */
+    private final Matrix inverse = new Matrix();
+    private final float[] array = new float[2];
+    private final Rect rect = new Rect();
+
+    private final DirectManipulator manipulator = new DirectManipulator();
+    private final SpatialGrid grid = new SpatialGrid(CELL_SIZE);
+    private boolean gridValid;
+
+    /**
+     * The index of the child being manipulated, or -1.
+     */
+    private int childIndex = -1;
+
+    /* Pointer routing. */
+    private DirectlyManipulableChildren plan;
+    private final ArrayList<PointerTarget> targets = new ArrayList<>();
+    /**
+     * The index in {@link #targets} of each pointer id, or -1.
+     */
+    private final int[] pointerTargets = new int[MAX_POINTER_ID + 1];
+    private final PointerProperties[] properties = new PointerProperties[MAX_POINTER_ID + 1];
+    private final PointerCoords[] coords = new PointerCoords[MAX_POINTER_ID + 1];
+    @Nullable
+    private IsActiveTokenGenerator isActiveTokenGenerator;
+
+    @Override
+    public void setIsActiveTokenGenerator(IsActiveTokenGenerator isActiveTokenGenerator) {
+      this.isActiveTokenGenerator = isActiveTokenGenerator;
+      for (int i = 0, count = targets.size(); i < count; i++) {
+        targets.get(i).manipulator.setIsActiveTokenGenerator(isActiveTokenGenerator);
+      }
+    }
+
+    @Override
+    public void addPlan(Plan<ViewGroup> plan) {
+      DirectlyManipulableChildren children = (DirectlyManipulableChildren) plan;
+      this.plan = children;
+      if (!children.performers.contains(this)) {
+        children.performers.add(this);
+      }
+      setGestureRecognizer(DirectManipulator.DRAG, children.dragGestureRecognizer);
+      setGestureRecognizer(DirectManipulator.SCALE, children.scaleGestureRecognizer);
+      setGestureRecognizer(DirectManipulator.ROTATE, children.rotateGestureRecognizer);
+
+      if (children.pointerRouting && targets.isEmpty()) {
+        targets.add(new PointerTarget(manipulator));
+        Arrays.fill(pointerTargets, -1);
+        for (int i = 0; i <= MAX_POINTER_ID; i++) {
+          properties[i] = new PointerProperties();
+          coords[i] = new PointerCoords();
+        }
+      }
+
+      manipulator.setTransformListener(transformListener);
+
+      ViewGroup parent = getTarget();
+      parent.setOnTouchListener(onTouchListener);
+      parent.removeOnLayoutChangeListener(onLayoutChangeListener);
+      parent.addOnLayoutChangeListener(onLayoutChangeListener);
+      gridValid = false;
+    }
+
+    private void setGestureRecognizer(int slot, GestureRecognizer gestureRecognizer) {
+      setGestureRecognizer(manipulator, slot, gestureRecognizer);
+    }
+
+    private static void setGestureRecognizer(
+      DirectManipulator manipulator, int slot, GestureRecognizer gestureRecognizer) {
+      manipulator.setGestureRecognizer(slot, gestureRecognizer);
+      gestureRecognizer.addStateChangeListener(manipulator.getTokenGestureListener());
+    }
+
+    private final OnTouchListener onTouchListener = new OnTouchListener() {
+      @Override
+      public boolean onTouch(View v, MotionEvent event) {
+        ViewGroup parent = (ViewGroup) v;
+        int action = event.getActionMasked();
+
+        if (!targets.isEmpty()) {
+          route(parent, event);
+          return true;
+        }
+
+        if (action == MotionEvent.ACTION_DOWN) {
+          bind(parent, hitTest(parent, event.getX(), event.getY()));
+        }
+        if (childIndex == -1) {
+          return false;
+        }
+
+        View child = manipulator.getTarget();
+        MotionEvent childEvent = MotionEvent.obtain(event);
+        toChildCoordinates(parent, child, childEvent);
+        manipulator.onTouchEvent(childEvent);
+        childEvent.recycle();
+        return true;
+      }
+    };
+
+    /**
+     * Routes each pointer of the event to the child it went down on. Each child's manipulator
+     * receives an event with only its own pointers, whose action is translated so that its first
+     * pointer goes down and its last pointer goes up.
+     */
+    private void route(ViewGroup parent, MotionEvent event) {
+      int action = event.getActionMasked();
+      switch (action) {
+        case MotionEvent.ACTION_DOWN:
+          Arrays.fill(pointerTargets, -1);
+          // fall through
+        case MotionEvent.ACTION_POINTER_DOWN: {
+          int index = event.getActionIndex();
+          int id = event.getPointerId(index);
+          int child = hitTest(parent, event.getX(index), event.getY(index));
+          if (id > MAX_POINTER_ID || child == -1) {
+            break;
+          }
+          int target = obtainTarget(parent, child);
+          PointerTarget pointerTarget = targets.get(target);
+          pointerTargets[id] = target;
+          dispatch(
+            parent,
+            event,
+            target,
+            pointerTarget.pointerCount == 0
+              ? MotionEvent.ACTION_DOWN : MotionEvent.ACTION_POINTER_DOWN,
+            id);
+          pointerTarget.pointerCount++;
+          break;
+        }
+        case MotionEvent.ACTION_MOVE:
+          for (int target = 0, count = targets.size(); target < count; target++) {
+            if (targets.get(target).pointerCount > 0) {
+              dispatch(parent, event, target, MotionEvent.ACTION_MOVE, -1);
+            }
+          }
+          break;
+        case MotionEvent.ACTION_POINTER_UP:
+        case MotionEvent.ACTION_UP: {
+          int id = event.getPointerId(event.getActionIndex());
+          int target = id > MAX_POINTER_ID ? -1 : pointerTargets[id];
+          if (target == -1) {
+            break;
+          }
+          PointerTarget pointerTarget = targets.get(target);
+          dispatch(
+            parent,
+            event,
+            target,
+            pointerTarget.pointerCount == 1
+              ? MotionEvent.ACTION_UP : MotionEvent.ACTION_POINTER_UP,
+            id);
+          pointerTargets[id] = -1;
+          pointerTarget.pointerCount--;
+          break;
+        }
+        case MotionEvent.ACTION_CANCEL:
+          for (int target = 0, count = targets.size(); target < count; target++) {
+            PointerTarget pointerTarget = targets.get(target);
+            if (pointerTarget.pointerCount > 0) {
+              dispatch(parent, event, target, MotionEvent.ACTION_CANCEL, -1);
+              pointerTarget.pointerCount = 0;
+            }
+          }
+          Arrays.fill(pointerTargets, -1);
+          break;
+      }
+    }
+
+    /**
+     * Returns the index of the target that manipulates the given child. A target that is neither
+     * touched nor settling is rebound to it, or a new target is created if every target is busy.
+     */
+    private int obtainTarget(ViewGroup parent, int child) {
+      int idle = -1;
+      for (int target = 0, count = targets.size(); target < count; target++) {
+        PointerTarget pointerTarget = targets.get(target);
+        if (pointerTarget.childIndex == child
+          && pointerTarget.manipulator.getTarget() == parent.getChildAt(child)) {
+          return target;
+        }
+        if (idle == -1 && pointerTarget.isIdle()) {
+          idle = target;
+        }
+      }
+
+      if (idle == -1) {
+        idle = targets.size();
+        targets.add(createTarget());
+      }
+      PointerTarget pointerTarget = targets.get(idle);
+      bind(pointerTarget.manipulator, parent.getChildAt(child));
+      pointerTarget.childIndex = child;
+      return idle;
+    }
+
+    private PointerTarget createTarget() {
+      DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+      dragGestureRecognizer.dragSlop = plan.dragGestureRecognizer.dragSlop;
+      ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+      scaleGestureRecognizer.scaleSlop = plan.scaleGestureRecognizer.scaleSlop;
+      RotateGestureRecognizer rotateGestureRecognizer = new RotateGestureRecognizer();
+      rotateGestureRecognizer.rotateSlop = plan.rotateGestureRecognizer.rotateSlop;
+
+      DirectManipulator manipulator = new DirectManipulator();
+      manipulator.setIsActiveTokenGenerator(isActiveTokenGenerator);
+      manipulator.setTransformListener(transformListener);
+      setGestureRecognizer(manipulator, DirectManipulator.DRAG, dragGestureRecognizer);
+      setGestureRecognizer(manipulator, DirectManipulator.SCALE, scaleGestureRecognizer);
+      setGestureRecognizer(manipulator, DirectManipulator.ROTATE, rotateGestureRecognizer);
+      return new PointerTarget(manipulator);
+    }
+
+    /**
+     * Sends the pointers of the event that are routed to the given target to its manipulator, in
+     * the coordinate space of its child.
+     *
+     * @param actionPointerId The id of the pointer that went down or up, or -1.
+     */
+    private void dispatch(
+      ViewGroup parent, MotionEvent event, int target, int action, int actionPointerId) {
+      int count = 0;
+      int actionIndex = 0;
+      for (int i = 0, pointerCount = event.getPointerCount(); i < pointerCount; i++) {
+        int id = event.getPointerId(i);
+        if (id <= MAX_POINTER_ID && pointerTargets[id] == target) {
+          if (id == actionPointerId) {
+            actionIndex = count;
+          }
+          PointerProperties pointerProperties = properties[count];
+          pointerProperties.id = id;
+          pointerProperties.toolType = event.getToolType(i);
+          PointerCoords pointerCoords = coords[count];
+          pointerCoords.x = event.getX(i);
+          pointerCoords.y = event.getY(i);
+          pointerCoords.pressure = event.getPressure(i);
+          pointerCoords.size = event.getSize(i);
+          count++;
+        }
+      }
+
+      if (action == MotionEvent.ACTION_POINTER_DOWN || action == MotionEvent.ACTION_POINTER_UP) {
+        action |= actionIndex << MotionEvent.ACTION_POINTER_INDEX_SHIFT;
+      }
+      MotionEvent targetEvent = MotionEvent.obtain(
+        event.getDownTime(),
+        event.getEventTime(),
+        action,
+        count,
+        properties,
+        coords,
+        event.getMetaState(),
+        event.getButtonState(),
+        1f,
+        1f,
+        event.getDeviceId(),
+        event.getEdgeFlags(),
+        event.getSource(),
+        event.getFlags());
+
+      DirectManipulator manipulator = targets.get(target).manipulator;
+      toChildCoordinates(parent, manipulator.getTarget(), targetEvent);
+      manipulator.onTouchEvent(targetEvent);
+      targetEvent.recycle();
+    }
+
+    private final OnLayoutChangeListener onLayoutChangeListener = new OnLayoutChangeListener() {
+      @Override
+      public void onLayoutChange(
+        View v,
+        int left,
+        int top,
+        int right,
+        int bottom,
+        int oldLeft,
+        int oldTop,
+        int oldRight,
+        int oldBottom) {
+        // Children may have been added, removed, reordered, or laid out.
+        gridValid = false;
+      }
+    };
+
+    /**
+     * Updates the index entry of a child each time a gesture or its momentum moves it.
+     */
+    private final DirectManipulator.TransformListener transformListener =
+      new DirectManipulator.TransformListener() {
+        @Override
+        public void onTransformCommitted(DirectManipulator committed) {
+          for (int target = 0, count = targets.size(); target < count; target++) {
+            PointerTarget pointerTarget = targets.get(target);
+            if (pointerTarget.manipulator == committed) {
+              if (pointerTarget.childIndex != -1) {
+                updateGrid(committed.getTarget(), pointerTarget.childIndex);
+              }
+              return;
+            }
+          }
+          if (committed == manipulator && childIndex != -1) {
+            updateGrid(committed.getTarget(), childIndex);
+          }
+        }
+      };
+
+    void invalidateChild(View child) {
+      ViewGroup parent = getTarget();
+      if (child.getParent() == parent) {
+        updateGrid(child, parent.indexOfChild(child));
+      }
+    }
+
+    /**
+     * Points the manipulator and gesture recognizers at the given child, or at nothing if it is -1.
+     * The manipulator commits its pending transform to the previous child before the index moves.
+     */
+    private void bind(ViewGroup parent, int index) {
+      bind(manipulator, index == -1 ? null : parent.getChildAt(index));
+      childIndex = index;
+    }
+
+    private static void bind(DirectManipulator manipulator, @Nullable View child) {
+      manipulator.setTarget(child);
+      for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+        if (manipulator.isEnabled(slot)) {
+          manipulator.getGestureRecognizer(slot).setElement(child);
+        }
+      }
+    }
+
+    /**
+     * Updates the index entry of a child that has moved.
+     */
+    private void updateGrid(View child, int index) {
+      if (gridValid) {
+        grid.remove(index);
+        insert(child, index);
+      }
+    }
+
+    /**
+     * Returns the index of the topmost visible child under the given point in the parent's
+     * coordinate space, or -1.
+     * <p>
+     * The index is rebuilt on layout, and a child's entry is updated each time the plan's gestures
+     * move it or {@link DirectlyManipulableChildren#invalidateChild(View)} is called.
+     */
+    @VisibleForTesting
+    int hitTest(ViewGroup parent, float x, float y) {
+      if (!gridValid) {
+        rebuildGrid(parent);
+      }
+
+      int cell = grid.getCell(x + parent.getScrollX(), y + parent.getScrollY());
+      int hit = -1;
+      for (int i = 0, count = grid.getItemCount(cell); i < count; i++) {
+        int index = grid.getItem(cell, i);
+        if (index > hit && contains(parent, parent.getChildAt(index), x, y)) {
+          hit = index;
+        }
+      }
+      return hit;
+    }
+
+    private void rebuildGrid(ViewGroup parent) {
+      int childCount = parent.getChildCount();
+      grid.reset(parent.getWidth(), parent.getHeight(), childCount);
+      for (int i = 0; i < childCount; i++) {
+        insert(parent.getChildAt(i), i);
+      }
+      gridValid = true;
+    }
+
+    private void insert(View child, int index) {
+      if (child.getVisibility() == View.VISIBLE) {
+        child.getHitRect(rect);
+        grid.insert(index, rect.left, rect.top, rect.right, rect.bottom);
+      }
+    }
+
+    private boolean contains(ViewGroup parent, View child, float x, float y) {
+      array[0] = x;
+      array[1] = y;
+      toChildCoordinates(parent, child, array);
+      return array[0] >= 0 && array[0] < child.getWidth()
+        && array[1] >= 0 && array[1] < child.getHeight();
+    }
+
+    /**
+     * Maps a point from the parent's coordinate space to the child's, the same way {@link
+     * ViewGroup} does when it dispatches touch events to its children.
+     */
+    private void toChildCoordinates(ViewGroup parent, View child, float[] point) {
+      point[0] += parent.getScrollX() - child.getLeft();
+      point[1] += parent.getScrollY() - child.getTop();
+
+      Matrix matrix = child.getMatrix();
+      if (!matrix.isIdentity()) {
+        matrix.invert(inverse);
+        inverse.mapPoints(point);
+      }
+    }
+
+    private void toChildCoordinates(ViewGroup parent, View child, MotionEvent event) {
+      event.offsetLocation(
+        parent.getScrollX() - child.getLeft(), parent.getScrollY() - child.getTop());
+
+      Matrix matrix = child.getMatrix();
+      if (!matrix.isIdentity()) {
+        matrix.invert(inverse);
+        event.transform(inverse);
+      }
+    }
+
+    /**
+     * A manipulator and the number of pointers that are routed to it.
+     */
+    private static final class PointerTarget {
+
+      final DirectManipulator manipulator;
+      int childIndex = -1;
+      int pointerCount;
+
+      PointerTarget(DirectManipulator manipulator) {
+        this.manipulator = manipulator;
+      }
+
+      boolean isIdle() {
+        return pointerCount == 0 && !manipulator.isSettling();
+      }
+    }
+  }
+}
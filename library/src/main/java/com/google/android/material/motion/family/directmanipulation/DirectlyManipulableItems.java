@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.View.OnTouchListener;
+import android.view.ViewGroup;
+import android.view.ViewParent;
+
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.Performer;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming;
+import com.google.android.material.motion.runtime.Plan;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Makes the recycled item views of a list, such as the children of a {@code RecyclerView},
+ * draggable, pinchable, and rotatable.
+ * <p>
+ * Add the plan to the list, then {@link #bind(View, int) bind} each item view when the adapter
+ * binds it and {@link #unbind(View) unbind} it when it is recycled. Binding installs one shared
+ * {@link OnTouchListener}, and a gesture is manipulated by a pooled set of gesture recognizers and
+ * manipulator state that is rebound to the touched item. Binding, unbinding, and scrolling
+ * therefore do not allocate once the pool has warmed up.
+ * <p>
+ * The transform of an unbound item is kept in a compact store keyed by its adapter position, and
+ * restored when that position is bound again. Positions are not shifted when items are inserted or
+ * removed, so call {@link #clearTransforms()} when the data set changes.
+ */
+public class DirectlyManipulableItems extends Plan<ViewGroup> {
+
+  private final TransformStore transforms = new TransformStore();
+  private final ArrayList<ItemManipulator> pool = new ArrayList<>();
+  private View[] boundViews = new View[16];
+  private int[] boundPositions = new int[16];
+  private int boundCount;
+  private boolean momentumEnabled;
+  @Nullable
+  private IsActiveTokenGenerator isActiveTokenGenerator;
+
+  /**
+   * Keeps items moving, scaling, and rotating with their release velocity after each gesture.
+   *
+   * @see ManipulationPlan#setMomentumEnabled(boolean)
+   */
+  public void setMomentumEnabled(boolean momentumEnabled) {
+    this.momentumEnabled = momentumEnabled;
+    for (int i = 0, count = pool.size(); i < count; i++) {
+      pool.get(i).setMomentumEnabled(momentumEnabled);
+    }
+  }
+
+  /**
+   * Makes the item view manipulable and restores the transform stored for the position. Call this
+   * when the adapter binds the view.
+   */
+  public void bind(View itemView, int position) {
+    int index = indexOf(itemView);
+    if (index == -1) {
+      if (boundCount == boundViews.length) {
+        boundViews = Arrays.copyOf(boundViews, boundCount * 2);
+        boundPositions = Arrays.copyOf(boundPositions, boundCount * 2);
+      }
+      index = boundCount++;
+      boundViews[index] = itemView;
+    } else {
+      // The view is rebound without being recycled first.
+      save(index);
+    }
+    boundPositions[index] = position;
+
+    transforms.restore(position, itemView);
+    itemView.setOnTouchListener(onTouchListener);
+  }
+
+  /**
+   * Binds many item views at once.
+   *
+   * @see #bind(View, int)
+   */
+  public void bindAll(View[] itemViews, int[] positions, int count) {
+    for (int i = 0; i < count; i++) {
+      bind(itemViews[i], positions[i]);
+    }
+  }
+
+  /**
+   * Stores the item view's transform under its position and stops manipulating it. Call this when
+   * the view is recycled.
+   */
+  public void unbind(View itemView) {
+    int index = indexOf(itemView);
+    if (index != -1) {
+      unbindAt(index);
+    }
+  }
+
+  /**
+   * Unbinds every bound item view, for example when the list is detached.
+   */
+  public void unbindAll() {
+    while (boundCount > 0) {
+      unbindAt(boundCount - 1);
+    }
+  }
+
+  /**
+   * Forgets every stored transform.
+   */
+  public void clearTransforms() {
+    transforms.clear();
+  }
+
+  @VisibleForTesting
+  int getPoolSize() {
+    return pool.size();
+  }
+
+  @VisibleForTesting
+  int getStoredTransformCount() {
+    return transforms.size();
+  }
+
+  @Override
+  public Class<? extends Performer<ViewGroup>> getPerformerClass() {
+    return DirectlyManipulableItemsPerformer.class;
+  }
+
+  void setIsActiveTokenGenerator(@Nullable IsActiveTokenGenerator isActiveTokenGenerator) {
+    this.isActiveTokenGenerator = isActiveTokenGenerator;
+    for (int i = 0, count = pool.size(); i < count; i++) {
+      pool.get(i).manipulator.setIsActiveTokenGenerator(isActiveTokenGenerator);
+    }
+  }
+
+  private void unbindAt(int index) {
+    View itemView = boundViews[index];
+    ItemManipulator itemManipulator = findManipulator(itemView);
+    if (itemManipulator != null) {
+      itemManipulator.setTarget(null);
+    }
+    save(index);
+    itemView.setOnTouchListener(null);
+
+    int last = --boundCount;
+    boundViews[index] = boundViews[last];
+    boundPositions[index] = boundPositions[last];
+    boundViews[last] = null;
+  }
+
+  private void save(int index) {
+    transforms.save(boundPositions[index], boundViews[index]);
+  }
+
+  private int indexOf(View itemView) {
+    for (int i = 0; i < boundCount; i++) {
+      if (boundViews[i] == itemView) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @Nullable
+  private ItemManipulator findManipulator(View itemView) {
+    for (int i = 0, count = pool.size(); i < count; i++) {
+      ItemManipulator itemManipulator = pool.get(i);
+      if (itemManipulator.manipulator.getTarget() == itemView) {
+        return itemManipulator;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns a pooled manipulator that is not busy with another item, creating one if every pooled
+   * manipulator is busy.
+   */
+  private ItemManipulator obtainManipulator() {
+    for (int i = 0, count = pool.size(); i < count; i++) {
+      ItemManipulator itemManipulator = pool.get(i);
+      if (!itemManipulator.isBusy()) {
+        return itemManipulator;
+      }
+    }
+    ItemManipulator itemManipulator = new ItemManipulator();
+    itemManipulator.manipulator.setIsActiveTokenGenerator(isActiveTokenGenerator);
+    itemManipulator.setMomentumEnabled(momentumEnabled);
+    pool.add(itemManipulator);
+    return itemManipulator;
+  }
+
+  private final OnTouchListener onTouchListener = new OnTouchListener() {
+    @Override
+    public boolean onTouch(View v, MotionEvent event) {
+      ItemManipulator itemManipulator = findManipulator(v);
+      if (event.getActionMasked() == MotionEvent.ACTION_DOWN && itemManipulator == null) {
+        itemManipulator = obtainManipulator();
+        itemManipulator.setTarget(v);
+      }
+      if (itemManipulator == null) {
+        return false;
+      }
+
+      itemManipulator.manipulator.onTouchEvent(event);
+
+      if (itemManipulator.manipulator.isGestureActive()) {
+        // Keep the list from scrolling away a gesture that is in progress.
+        ViewParent parent = v.getParent();
+        if (parent != null) {
+          parent.requestDisallowInterceptTouchEvent(true);
+        }
+      }
+      return true;
+    }
+  };
+
+  /**
+   * A manipulator and a set of gesture recognizers that can be rebound to any item view.
+   */
+  private static final class ItemManipulator {
+
+    final DirectManipulator manipulator = new DirectManipulator();
+
+    ItemManipulator() {
+      setGestureRecognizer(DirectManipulator.DRAG, new DragGestureRecognizer());
+      setGestureRecognizer(DirectManipulator.SCALE, new ScaleGestureRecognizer());
+      setGestureRecognizer(DirectManipulator.ROTATE, new RotateGestureRecognizer());
+    }
+
+    private void setGestureRecognizer(int slot, GestureRecognizer gestureRecognizer) {
+      manipulator.setGestureRecognizer(slot, gestureRecognizer);
+      gestureRecognizer.addStateChangeListener(manipulator.getTokenGestureListener());
+    }
+
+    void setMomentumEnabled(boolean momentumEnabled) {
+      for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+        manipulator.setMomentumEnabled(slot, momentumEnabled);
+      }
+    }
+
+    void setTarget(@Nullable View target) {
+      manipulator.setTarget(target);
+      for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+        manipulator.getGestureRecognizer(slot).setElement(target);
+      }
+    }
+
+    /**
+     * Returns whether the manipulator's item is being manipulated or is still settling.
+     */
+    boolean isBusy() {
+      return manipulator.getTarget() != null
+        && (manipulator.isGestureActive() || manipulator.isSettling());
+    }
+  }
+
+  /**
+   * A performer that passes the runtime's token generator to the plan's pooled manipulators.
+   */
+  public static class DirectlyManipulableItemsPerformer extends Performer<ViewGroup>
+    implements ContinuousPerforming {
+
+    private IsActiveTokenGenerator isActiveTokenGenerator;
+
+    @Override
+    public void setIsActiveTokenGenerator(IsActiveTokenGenerator isActiveTokenGenerator) {
+      this.isActiveTokenGenerator = isActiveTokenGenerator;
+    }
+
+    @Override
+    public void addPlan(Plan<ViewGroup> plan) {
+      ((DirectlyManipulableItems) plan).setIsActiveTokenGenerator(isActiveTokenGenerator);
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+
+import java.io.PrintWriter;
+
+/**
+ * Operational counters of the direct manipulation of a target.
+ * <p>
+ * Counters are always kept. Each one is a primitive incremented on the UI thread, so keeping them
+ * costs a few additions per touch event and nothing is done when they are not read. They must
+ * only be read on the UI thread, or copied there with {@link #copyInto(GestureCounters)}.
+ *
+ * @see ManipulationPlan#getCounters()
+ */
+public final class GestureCounters {
+
+  /**
+   * The drag gesture recognizer.
+   */
+  public static final int DRAG = DirectManipulator.DRAG;
+  /**
+   * The pinch gesture recognizer.
+   */
+  public static final int SCALE = DirectManipulator.SCALE;
+  /**
+   * The rotation gesture recognizer.
+   */
+  public static final int ROTATE = DirectManipulator.ROTATE;
+
+  private static final String[] NAMES = {"drag", "scale", "rotate"};
+
+  private final long[] began = new long[DirectManipulator.SLOT_COUNT];
+  private final long[] recognized = new long[DirectManipulator.SLOT_COUNT];
+  private final long[] cancelled = new long[DirectManipulator.SLOT_COUNT];
+  private long eventsDispatched;
+  private long eventsHandled;
+  private long pivotRecomputations;
+  private long tokensIssued;
+
+  /**
+   * Creates empty counters, for example to copy a snapshot into.
+   */
+  public GestureCounters() {
+  }
+
+  /**
+   * Returns the number of gestures begun by the given recognizer, one of {@link #DRAG}, {@link
+   * #SCALE}, or {@link #ROTATE}.
+   */
+  public long getGesturesBegan(int recognizer) {
+    return began[recognizer];
+  }
+
+  /**
+   * Returns the number of gestures recognized by the given recognizer.
+   */
+  public long getGesturesRecognized(int recognizer) {
+    return recognized[recognizer];
+  }
+
+  /**
+   * Returns the number of gestures cancelled by the given recognizer.
+   */
+  public long getGesturesCancelled(int recognizer) {
+    return cancelled[recognizer];
+  }
+
+  /**
+   * Returns the number of touch events the target's touch listener received.
+   */
+  public long getEventsDispatched() {
+    return eventsDispatched;
+  }
+
+  /**
+   * Returns the number of touch events that a gesture recognizer handled.
+   */
+  public long getEventsHandled() {
+    return eventsHandled;
+  }
+
+  /**
+   * Returns the number of times the target's pivot was moved.
+   */
+  public long getPivotRecomputations() {
+    return pivotRecomputations;
+  }
+
+  /**
+   * Returns the number of is-active tokens issued to the runtime.
+   */
+  public long getTokensIssued() {
+    return tokensIssued;
+  }
+
+  public void reset() {
+    for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+      began[slot] = 0;
+      recognized[slot] = 0;
+      cancelled[slot] = 0;
+    }
+    eventsDispatched = 0;
+    eventsHandled = 0;
+    pivotRecomputations = 0;
+    tokensIssued = 0;
+  }
+
+  /**
+   * Copies every counter into the given counters, replacing their values.
+   */
+  public void copyInto(GestureCounters other) {
+    System.arraycopy(began, 0, other.began, 0, DirectManipulator.SLOT_COUNT);
+    System.arraycopy(recognized, 0, other.recognized, 0, DirectManipulator.SLOT_COUNT);
+    System.arraycopy(cancelled, 0, other.cancelled, 0, DirectManipulator.SLOT_COUNT);
+    other.eventsDispatched = eventsDispatched;
+    other.eventsHandled = eventsHandled;
+    other.pivotRecomputations = pivotRecomputations;
+    other.tokensIssued = tokensIssued;
+  }
+
+  /**
+   * Prints every counter, one per line, each line starting with the given prefix. Suited to
+   * {@link android.app.Activity#dump(String, java.io.FileDescriptor, PrintWriter, String[])},
+   * which is called on the UI thread.
+   */
+  public void dump(String prefix, PrintWriter writer) {
+    writer.print(prefix);
+    writer.print("events: dispatched=");
+    writer.print(eventsDispatched);
+    writer.print(" handled=");
+    writer.println(eventsHandled);
+    for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+      writer.print(prefix);
+      writer.print(NAMES[slot]);
+      writer.print(": began=");
+      writer.print(began[slot]);
+      writer.print(" recognized=");
+      writer.print(recognized[slot]);
+      writer.print(" cancelled=");
+      writer.println(cancelled[slot]);
+    }
+    writer.print(prefix);
+    writer.print("pivotRecomputations=");
+    writer.println(pivotRecomputations);
+    writer.print(prefix);
+    writer.print("tokensIssued=");
+    writer.println(tokensIssued);
+  }
+
+  void onEvent(boolean handled) {
+    eventsDispatched++;
+    if (handled) {
+      eventsHandled++;
+    }
+  }
+
+  void onStateChanged(int slot, int state) {
+    switch (state) {
+      case GestureRecognizer.BEGAN:
+        began[slot]++;
+        break;
+      case GestureRecognizer.RECOGNIZED:
+        recognized[slot]++;
+        break;
+      case GestureRecognizer.CANCELLED:
+        cancelled[slot]++;
+        break;
+    }
+  }
+
+  void onPivotRecomputed() {
+    pivotRecomputations++;
+  }
+
+  void onTokenIssued() {
+    tokensIssued++;
+  }
+}
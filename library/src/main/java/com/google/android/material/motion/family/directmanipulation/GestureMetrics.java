@@ -0,0 +1,87 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Latency histograms of the direct manipulation of a target.
+ * <p>
+ * The event-to-write histogram records, for every touch event whose changes are written to the
+ * target, the time from {@link android.view.MotionEvent#getEventTime()} to the property write.
+ * The recognizer histograms record the time spent in each gesture recognizer's {@code
+ * onTouchEvent}, including the state listeners it calls. All times are in microseconds.
+ * <p>
+ * Metrics are recorded on the UI thread and must only be read there. Pipelined targets are not
+ * recorded.
+ *
+ * @see ManipulationPlan#setMetricsEnabled(boolean)
+ */
+public final class GestureMetrics {
+
+  /**
+   * Listens for the end of gestures on a target.
+   */
+  public interface Listener {
+
+    /**
+     * Called on the UI thread each time the last active gesture on the target ends.
+     */
+    void onGesturesEnded(GestureMetrics metrics);
+  }
+
+  final LatencyHistogram eventToWrite = new LatencyHistogram();
+  final LatencyHistogram[] recognizers = new LatencyHistogram[DirectManipulator.SLOT_COUNT];
+  @Nullable
+  Listener listener;
+
+  GestureMetrics() {
+    for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+      recognizers[slot] = new LatencyHistogram();
+    }
+  }
+
+  public LatencyHistogram getEventToWriteHistogram() {
+    return eventToWrite;
+  }
+
+  public LatencyHistogram getDragRecognizerHistogram() {
+    return recognizers[DirectManipulator.DRAG];
+  }
+
+  public LatencyHistogram getScaleRecognizerHistogram() {
+    return recognizers[DirectManipulator.SCALE];
+  }
+
+  public LatencyHistogram getRotateRecognizerHistogram() {
+    return recognizers[DirectManipulator.ROTATE];
+  }
+
+  /**
+   * Sets a listener that is notified each time the last active gesture on the target ends, for
+   * example to ship percentiles to telemetry.
+   */
+  public void setListener(@Nullable Listener listener) {
+    this.listener = listener;
+  }
+
+  public void reset() {
+    eventToWrite.reset();
+    for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+      recognizers[slot].reset();
+    }
+  }
+}
@@ -15,17 +15,12 @@
  */
 package com.google.android.material.motion.family.directmanipulation;
 
-import android.graphics.Matrix;
-import android.support.v4.util.SimpleArrayMap;
+import android.support.annotation.Nullable;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.View.OnTouchListener;
 
-import com.google.android.material.motion.gestures.DragGestureRecognizer;
 import com.google.android.material.motion.gestures.GestureRecognizer;
-import com.google.android.material.motion.gestures.GestureRecognizer.GestureStateChangeListener;
-import com.google.android.material.motion.gestures.RotateGestureRecognizer;
-import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
 import com.google.android.material.motion.runtime.NamedPerformer;
 import com.google.android.material.motion.runtime.NamedPlan;
 import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming;
@@ -36,35 +31,40 @@ import com.google.android.material.motion.runtime.Plan;
  */
 public class GesturePerformer extends NamedPerformer<View> implements ContinuousPerforming {
 
-  /* Temporary variables. */
-  private final float[] array = new float[2];
-  private final Matrix matrix = new Matrix();
-  private final Matrix inverse = new Matrix();
-
-  private final SimpleArrayMap<Class<? extends GestureRecognizer>, GestureRecognizer> gestureRecognizers =
-    new SimpleArrayMap<>();
-
-  private float initialTranslationX;
-  private float initialTranslationY;
-  private float initialScaleX;
-  private float initialScaleY;
-  private float initialRotation;
+  /**
+   * Listens for the transform commits of a frame-aligned performer.
+   */
+  public interface FrameCommitListener {
+
+    /**
+     * Called after the accumulated transform has been written to the target.
+     *
+     * @param coalescedEvents The number of touch events that were folded into this commit.
+     */
+    void onFrameCommitted(View target, int coalescedEvents);
+  }
 
-  private IsActiveTokenGenerator isActiveTokenGenerator;
+  private final DirectManipulator manipulator = new DirectManipulator();
+  @Nullable
+  private GesturePipeline pipeline;
+  @Nullable
+  private GestureTraceRecorder traceRecorder;
+  @Nullable
+  private GestureCounters counters;
 
   @Override
   public void setIsActiveTokenGenerator(IsActiveTokenGenerator isActiveTokenGenerator) {
-    this.isActiveTokenGenerator = isActiveTokenGenerator;
+    manipulator.setIsActiveTokenGenerator(isActiveTokenGenerator);
   }
 
   @Override
   public void addPlan(Plan<View> plan) {
     if (plan instanceof Draggable) {
-      addDraggable((Draggable) plan);
+      addGesturePlanCommon((Draggable) plan, DirectManipulator.DRAG);
     } else if (plan instanceof Pinchable) {
-      addPinchable((Pinchable) plan);
+      addGesturePlanCommon((Pinchable) plan, DirectManipulator.SCALE);
     } else if (plan instanceof Rotatable) {
-      addRotatable((Rotatable) plan);
+      addGesturePlanCommon((Rotatable) plan, DirectManipulator.ROTATE);
     } else {
       throw new IllegalArgumentException("Plan type not supported for " + plan);
     }
@@ -77,45 +77,92 @@ public class GesturePerformer extends NamedPerformer<View> implements Continuous
 
   @Override
   public void removePlan(String name) {
-    Class<? extends GestureRecognizer> klass;
+    int slot = getSlot(name);
+    boolean lazy = manipulator.isLazy(slot);
+    GestureRecognizer gestureRecognizer = manipulator.removeGestureRecognizer(slot);
+    // A lazy slot is empty before the first touch-down and after its gesture recognizer is
+    // released.
+    if (!lazy || gestureRecognizer != null) {
+      gestureRecognizer.setElement(null);
+    }
+  }
+
+  private static int getSlot(String name) {
     if (name.equals("draggable")) {
-      klass = DragGestureRecognizer.class;
+      return DirectManipulator.DRAG;
     } else if (name.equals("pinchable")) {
-      klass = ScaleGestureRecognizer.class;
+      return DirectManipulator.SCALE;
     } else if (name.equals("rotatable")) {
-      klass = RotateGestureRecognizer.class;
+      return DirectManipulator.ROTATE;
     } else {
       throw new IllegalArgumentException(
         "Only \"draggable\", \"pinchable\", or \"rotatable\" names may be used.");
     }
-
-    GestureRecognizer gestureRecognizer = gestureRecognizers.remove(klass);
-    gestureRecognizer.setElement(null);
   }
 
-  private void addDraggable(Draggable plan) {
-    addGesturePlanCommon(plan);
-    plan.gestureRecognizer.addStateChangeListener(dragGestureListener);
-  }
-
-  private void addPinchable(Pinchable plan) {
-    addGesturePlanCommon(plan);
-    plan.gestureRecognizer.addStateChangeListener(scaleGestureListener);
-  }
-
-  private void addRotatable(Rotatable plan) {
-    addGesturePlanCommon(plan);
-    plan.gestureRecognizer.addStateChangeListener(rotateGestureListener);
+  private void addGesturePlanCommon(GesturePlan plan, int slot) {
+    View target = getTarget();
+    manipulator.setTarget(target);
+    applyOptions(plan.options);
+    manipulator.setMomentumEnabled(slot, plan.momentumEnabled);
+
+    GestureRecognizer gestureRecognizer = plan.gestureRecognizer;
+    if (gestureRecognizer == null) {
+      target.setOnTouchListener(onTouchListener);
+      manipulator.setLazyGestureRecognizer(slot);
+      return;
+    }
+    if (gestureRecognizer.getElement() == null) {
+      target.setOnTouchListener(onTouchListener);
+      gestureRecognizer.setElement(target);
+    }
+    // The manipulator observes first, so that momentum holds the token before the gesture releases
+    // it.
+    manipulator.setGestureRecognizer(slot, gestureRecognizer);
+    gestureRecognizer.addStateChangeListener(manipulator.getTokenGestureListener());
   }
 
-  private void addGesturePlanCommon(GesturePlan plan) {
-    if (plan.gestureRecognizer.getElement() == null) {
-      View element = getTarget();
-      element.setOnTouchListener(onTouchListener);
-      plan.gestureRecognizer.setElement(element);
+  private void applyOptions(PerformerOptions options) {
+    // Every plan on the target reports the counters of the first one.
+    if (counters == null) {
+      counters = options.counters;
+      manipulator.setCounters(counters);
+    } else {
+      options.counters = counters;
+    }
+    if (options.frameAligned) {
+      manipulator.setFrameAligned(true);
+    }
+    if (options.frameCommitListener != null) {
+      manipulator.setFrameCommitListener(options.frameCommitListener);
+    }
+    if (options.hardwareLayerEnabled) {
+      manipulator.setHardwareLayerEnabled(true);
+    }
+    if (options.predictionHorizonMillis > 0) {
+      manipulator.setPrediction(options.predictionHorizonMillis, options.predictionStatistics);
+    }
+    if (options.metrics != null) {
+      manipulator.setMetrics(options.metrics);
+    }
+    if (options.targetMatrix != null) {
+      manipulator.setTargetMatrix(options.targetMatrix);
+    }
+    if (options.sharedTransform != null) {
+      manipulator.setSharedTransform(options.sharedTransform);
+    }
+    if (options.degradation != null) {
+      manipulator.setAdaptiveDegradation(options.degradation);
+    }
+    if (options.recognizerReleaseDelayMillis >= 0) {
+      manipulator.setRecognizerReleaseDelay(options.recognizerReleaseDelayMillis);
+    }
+    if (options.traceRecorder != null) {
+      traceRecorder = options.traceRecorder;
+    }
+    if (options.pipelined && pipeline == null) {
+      pipeline = new GesturePipeline(manipulator);
     }
-    plan.gestureRecognizer.addStateChangeListener(tokenGestureListener);
-    gestureRecognizers.put(plan.gestureRecognizer.getClass(), plan.gestureRecognizer);
   }
 
   /**
@@ -124,161 +171,17 @@ public class GesturePerformer extends NamedPerformer<View> implements Continuous
   private final OnTouchListener onTouchListener = new OnTouchListener() {
     @Override
     public boolean onTouch(View v, MotionEvent event) {
-      boolean handled = false;
-
-      for (int i = 0, count = gestureRecognizers.size(); i < count; i++) {
-        GestureRecognizer gestureRecognizer = gestureRecognizers.valueAt(i);
-        handled |= gestureRecognizer.onTouchEvent(event);
+      if (traceRecorder != null) {
+        traceRecorder.record(event);
       }
-
-      return handled;
-    }
-  };
-
-  private GestureStateChangeListener tokenGestureListener = new GestureStateChangeListener() {
-
-    private SimpleArrayMap<GestureRecognizer, IsActiveToken> tokens = new SimpleArrayMap<>();
-
-    @Override
-    public void onStateChanged(GestureRecognizer gestureRecognizer) {
-      switch (gestureRecognizer.getState()) {
-        case GestureRecognizer.BEGAN:
-          tokens.put(gestureRecognizer, isActiveTokenGenerator.generate());
-          break;
-        case GestureRecognizer.RECOGNIZED:
-        case GestureRecognizer.CANCELLED:
-          tokens.remove(gestureRecognizer).terminate();
-          break;
-      }
-    }
-  };
-
-  private final GestureStateChangeListener dragGestureListener = new GestureStateChangeListener() {
-
-    @Override
-    public void onStateChanged(GestureRecognizer gestureRecognizer) {
-      View target = getTarget();
-      switch (gestureRecognizer.getState()) {
-        case GestureRecognizer.BEGAN:
-          initialTranslationX = target.getTranslationX();
-          initialTranslationY = target.getTranslationY();
-          break;
-        case GestureRecognizer.CHANGED:
-          float translationX = ((DragGestureRecognizer) gestureRecognizer).getTranslationX();
-          float translationY = ((DragGestureRecognizer) gestureRecognizer).getTranslationY();
-
-          target.setTranslationX(initialTranslationX + translationX);
-          target.setTranslationY(initialTranslationY + translationY);
-          break;
-      }
-    }
-  };
-
-  private final GestureStateChangeListener scaleGestureListener = new GestureStateChangeListener() {
-
-    @Override
-    public void onStateChanged(GestureRecognizer gestureRecognizer) {
-      View target = getTarget();
-      switch (gestureRecognizer.getState()) {
-        case GestureRecognizer.BEGAN:
-          initialScaleX = target.getScaleX();
-          initialScaleY = target.getScaleY();
-          break;
-        case GestureRecognizer.CHANGED:
-          float scale = ((ScaleGestureRecognizer) gestureRecognizer).getScale();
-
-          target.setScaleX(initialScaleX * scale);
-          target.setScaleY(initialScaleY * scale);
-
-          if (gestureRecognizers.containsKey(DragGestureRecognizer.class)) {
-            setPivotToCentroid(target, gestureRecognizer);
-          }
-          break;
-        case GestureRecognizer.RECOGNIZED:
-        case GestureRecognizer.CANCELLED:
-          if (gestureRecognizers.containsKey(DragGestureRecognizer.class)) {
-            resetPivot(target);
-          }
-          break;
-      }
-    }
-  };
-
-  private final GestureStateChangeListener rotateGestureListener = new GestureStateChangeListener() {
-
-    @Override
-    public void onStateChanged(GestureRecognizer gestureRecognizer) {
-      View target = getTarget();
-      switch (gestureRecognizer.getState()) {
-        case GestureRecognizer.BEGAN:
-          initialRotation = target.getRotation();
-          break;
-        case GestureRecognizer.CHANGED:
-          float rotation = ((RotateGestureRecognizer) gestureRecognizer).getRotation();
-
-          target.setRotation((float) (initialRotation + rotation * (180 / Math.PI)));
-
-          if (gestureRecognizers.containsKey(DragGestureRecognizer.class)) {
-            setPivotToCentroid(target, gestureRecognizer);
-          }
-          break;
-        case GestureRecognizer.RECOGNIZED:
-        case GestureRecognizer.CANCELLED:
-          if (gestureRecognizers.containsKey(DragGestureRecognizer.class)) {
-            resetPivot(target);
-          }
-          break;
+      boolean handled;
+      if (pipeline != null) {
+        handled = pipeline.onTouchEvent(event);
+      } else {
+        handled = manipulator.onTouchEvent(event);
       }
+      counters.onEvent(handled);
+      return handled;
     }
   };
-
-  private void setPivotToCentroid(View target, GestureRecognizer gestureRecognizer) {
-    setPivotToCentroid(
-      target,
-      gestureRecognizer.getCentroidX(),
-      gestureRecognizer.getCentroidY(),
-      gestureRecognizer.getUntransformedCentroidX(),
-      gestureRecognizer.getUntransformedCentroidY());
-  }
-
-  private void resetPivot(View target) {
-    float centroidX = target.getWidth() / 2f;
-    float centroidY = target.getHeight() / 2f;
-
-    array[0] = centroidX;
-    array[1] = centroidY;
-    GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
-    matrix.mapPoints(array);
-
-    float untransformedCentroidX = array[0];
-    float untransformedCentroidY = array[1];
-
-    setPivotToCentroid(
-      target, centroidX, centroidY, untransformedCentroidX, untransformedCentroidY);
-  }
-
-  private void setPivotToCentroid(
-    View target,
-    float centroidX,
-    float centroidY,
-    float untransformedCentroidX,
-    float untransformedCentroidY) {
-    target.setPivotX(centroidX);
-    target.setPivotY(centroidY);
-
-    // Ensure that the pivot is over the untransformed centroid.
-
-    array[0] = target.getPivotX();
-    array[1] = target.getPivotY();
-    GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
-    matrix.mapPoints(array);
-
-    float adjustX = untransformedCentroidX - array[0];
-    float adjustY = untransformedCentroidY - array[1];
-
-    initialTranslationX += adjustX;
-    initialTranslationY += adjustY;
-    target.setTranslationX(target.getTranslationX() + adjustX);
-    target.setTranslationY(target.getTranslationY() + adjustY);
-  }
 }
@@ -0,0 +1,539 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.view.ViewCompat;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Solves the drag, scale, and rotation of a target on a worker thread.
+ * <p>
+ * On the UI thread, each touch event's pointers are mapped with {@link
+ * GestureRecognizer#getTransformationMatrix(View, Matrix, Matrix)}, the same mapping the gesture
+ * recognizers use for their centroids, and copied into a shared {@link SampleRing}. A single
+ * worker thread solves the transform of every pipeline in closed form and publishes it under a
+ * sequence lock. The UI thread writes the latest published transform once per animation frame.
+ * The worker is started by the first active pipeline and exits once no pipeline is active and the
+ * ring is drained.
+ * <p>
+ * When the ring is full, samples are dropped rather than blocking the UI thread. Every sample holds
+ * absolute positions, so the next one that fits restores the gesture. A dropped start or anchor is
+ * carried over to it. Anchor and end samples first move the transform to their own pointers, so the
+ * final positions of a gesture are never lost.
+ * <p>
+ * The pivot is never moved. Each gesture maps the image of the pivot through the similarity
+ * defined by the pointers, and the translation follows it. The rotation follows the first two
+ * pointers only. The gesture recognizers, their slop and state listeners, and momentum are not
+ * used in this mode.
+ */
+final class GesturePipeline {
+
+  private static final int NONE = -1;
+
+  private static final SampleRing ring = new SampleRing();
+  private static final Object workerLock = new Object();
+  /* Guarded by workerLock. */
+  private static int activePipelines;
+  @Nullable
+  private static volatile Thread worker;
+
+  /**
+   * Whether a worker thread solves the samples. When disabled, they stay in the ring until {@link
+   * #drain()} is called.
+   */
+  @VisibleForTesting
+  static boolean workerEnabled = true;
+
+  /* UI thread state. */
+  private final DirectManipulator manipulator;
+  private final Matrix matrix = new Matrix();
+  private final Matrix inverse = new Matrix();
+  private final float[] point = new float[2];
+  private boolean gestureActive;
+  private boolean tokenHeld;
+  private boolean applyScheduled;
+  private int deferredType = NONE;
+  private int produced;
+  private int appliedVersion;
+  private int appliedConsumed;
+  private float appliedTranslationX;
+  private float appliedTranslationY;
+  private float appliedScaleX;
+  private float appliedScaleY;
+  private float appliedRotation;
+
+  /* Worker thread state. */
+  private int flags;
+  private int consumed;
+  private int skippedIndex = NONE;
+  private int anchorPointerCount;
+  private float anchorCentroidX;
+  private float anchorCentroidY;
+  private float anchorSpan;
+  private float previousAngle;
+  private float angle;
+  private float baseTranslationX;
+  private float baseTranslationY;
+  private float baseScaleX;
+  private float baseScaleY;
+  private float baseRotation;
+  private float basePivotImageX;
+  private float basePivotImageY;
+  private float centerImageX;
+  private float centerImageY;
+  private float translationX;
+  private float translationY;
+  private float scaleX;
+  private float scaleY;
+  private float rotation;
+
+  /* Published by the worker thread. Odd versions are being written. */
+  private volatile int version;
+  private volatile int resultConsumed;
+  private volatile float resultTranslationX;
+  private volatile float resultTranslationY;
+  private volatile float resultScaleX;
+  private volatile float resultScaleY;
+  private volatile float resultRotation;
+
+  GesturePipeline(DirectManipulator manipulator) {
+    this.manipulator = manipulator;
+  }
+
+  /**
+   * Copies the event's pointers into the ring. Must be called on the UI thread.
+   */
+  boolean onTouchEvent(MotionEvent event) {
+    View target = manipulator.getTarget();
+    int action = event.getActionMasked();
+    int type;
+    switch (action) {
+      case MotionEvent.ACTION_DOWN:
+        apply(target);
+        type = SampleRing.START;
+        break;
+      case MotionEvent.ACTION_MOVE:
+        type = SampleRing.MOVE;
+        break;
+      case MotionEvent.ACTION_POINTER_DOWN:
+      case MotionEvent.ACTION_POINTER_UP:
+        type = SampleRing.ANCHOR;
+        break;
+      case MotionEvent.ACTION_UP:
+      case MotionEvent.ACTION_CANCEL:
+        type = SampleRing.END;
+        break;
+      default:
+        return true;
+    }
+
+    if (type == SampleRing.START && !gestureActive) {
+      gestureActive = true;
+      if (!tokenHeld) {
+        tokenHeld = true;
+        attachWorker();
+        manipulator.getTokenGestureListener().acquire();
+        manipulator.onGesturesActive();
+      }
+    } else if (type == SampleRing.END) {
+      gestureActive = false;
+    }
+    scheduleApply(target);
+
+    if (!ring.tryClaim()) {
+      if (type == SampleRing.START
+          || (type == SampleRing.ANCHOR && deferredType != SampleRing.START)) {
+        deferredType = type;
+      }
+      return true;
+    }
+    if (deferredType == SampleRing.START
+        || (deferredType == SampleRing.ANCHOR && type == SampleRing.MOVE)) {
+      type = deferredType;
+    }
+    deferredType = NONE;
+
+    GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
+
+    int pointerCount = Math.min(event.getPointerCount(), SampleRing.MAX_POINTERS);
+    for (int i = 0; i < pointerCount; i++) {
+      point[0] = event.getX(i);
+      point[1] = event.getY(i);
+      matrix.mapPoints(point);
+      ring.setPointer(i, point[0], point[1]);
+    }
+    ring.setSample(this, type, getEnabledFlags(), pointerCount);
+    if ((action == MotionEvent.ACTION_POINTER_DOWN || action == MotionEvent.ACTION_POINTER_UP)
+        && event.getActionIndex() < pointerCount) {
+      ring.setChangedPointer(
+          event.getActionIndex(), action == MotionEvent.ACTION_POINTER_DOWN);
+    }
+
+    if (type == SampleRing.START) {
+      ring.setSnapshot(SampleRing.TRANSLATION_X, target.getTranslationX());
+      ring.setSnapshot(SampleRing.TRANSLATION_Y, target.getTranslationY());
+      ring.setSnapshot(SampleRing.SCALE_X, target.getScaleX());
+      ring.setSnapshot(SampleRing.SCALE_Y, target.getScaleY());
+      ring.setSnapshot(SampleRing.ROTATION, target.getRotation());
+      mapPoint(target.getPivotX(), target.getPivotY());
+      ring.setSnapshot(SampleRing.PIVOT_IMAGE_X, point[0]);
+      ring.setSnapshot(SampleRing.PIVOT_IMAGE_Y, point[1]);
+      mapPoint(target.getWidth() / 2f, target.getHeight() / 2f);
+      ring.setSnapshot(SampleRing.CENTER_IMAGE_X, point[0]);
+      ring.setSnapshot(SampleRing.CENTER_IMAGE_Y, point[1]);
+    }
+
+    ring.publish();
+    produced++;
+    wakeWorker();
+    return true;
+  }
+
+  private int getEnabledFlags() {
+    int flags = 0;
+    for (int slot = 0; slot < DirectManipulator.SLOT_COUNT; slot++) {
+      // A lazy slot only gets a gesture recognizer when the manipulator sees a touch, which it never
+      // does in this mode.
+      if (manipulator.isEnabled(slot) || manipulator.isLazy(slot)) {
+        flags |= 1 << slot;
+      }
+    }
+    return flags;
+  }
+
+  private void mapPoint(float x, float y) {
+    point[0] = x;
+    point[1] = y;
+    matrix.mapPoints(point);
+  }
+
+  private void scheduleApply(View target) {
+    if (!applyScheduled) {
+      applyScheduled = true;
+      ViewCompat.postOnAnimation(target, applyFrame);
+    }
+  }
+
+  private final Runnable applyFrame = new Runnable() {
+    @Override
+    public void run() {
+      applyScheduled = false;
+      View target = manipulator.getTarget();
+      apply(target);
+
+      if (appliedConsumed != produced) {
+        scheduleApply(target);
+      } else if (!gestureActive && tokenHeld) {
+        tokenHeld = false;
+        detachWorker();
+        manipulator.onGesturesIdle();
+        manipulator.getTokenGestureListener().release();
+      }
+    }
+  };
+
+  /**
+   * Writes the latest published transform to the target, if it has changed.
+   */
+  private void apply(View target) {
+    int before;
+    do {
+      before = version;
+    } while (!readResult(before));
+
+    if (before != appliedVersion) {
+      appliedVersion = before;
+      target.setTranslationX(appliedTranslationX);
+      target.setTranslationY(appliedTranslationY);
+      target.setScaleX(appliedScaleX);
+      target.setScaleY(appliedScaleY);
+      target.setRotation(appliedRotation);
+    }
+  }
+
+  private boolean readResult(int before) {
+    if ((before & 1) != 0) {
+      return false;
+    }
+    appliedConsumed = resultConsumed;
+    appliedTranslationX = resultTranslationX;
+    appliedTranslationY = resultTranslationY;
+    appliedScaleX = resultScaleX;
+    appliedScaleY = resultScaleY;
+    appliedRotation = resultRotation;
+    return version == before;
+  }
+
+  /* Worker thread. */
+
+  private static void attachWorker() {
+    synchronized (workerLock) {
+      activePipelines++;
+      if (worker == null && workerEnabled) {
+        Thread thread = new Thread(solveLoop, "GesturePipeline");
+        thread.setDaemon(true);
+        worker = thread;
+        thread.start();
+      }
+    }
+  }
+
+  private static void detachWorker() {
+    synchronized (workerLock) {
+      activePipelines--;
+    }
+    wakeWorker();
+  }
+
+  private static void wakeWorker() {
+    Thread thread = worker;
+    if (thread != null) {
+      LockSupport.unpark(thread);
+    }
+  }
+
+  private static final Runnable solveLoop = new Runnable() {
+    @Override
+    public void run() {
+      while (true) {
+        if (!ring.isEmpty()) {
+          solveHead();
+          continue;
+        }
+        synchronized (workerLock) {
+          if (activePipelines == 0 && ring.isEmpty()) {
+            worker = null;
+            return;
+          }
+        }
+        LockSupport.park(this);
+      }
+    }
+  };
+
+  /**
+   * Solves every sample in the ring on the calling thread. Only used while the worker is disabled.
+   */
+  @VisibleForTesting
+  static void drain() {
+    while (!ring.isEmpty()) {
+      solveHead();
+    }
+  }
+
+  private static void solveHead() {
+    ((GesturePipeline) ring.getOwner()).solve();
+    ring.release();
+  }
+
+  /**
+   * Solves the transform for the sample at the head of the ring.
+   */
+  private void solve() {
+    int changedIndex = ring.getChangedIndex();
+    boolean changedDown = ring.isChangedPointerDown();
+    switch (ring.getType()) {
+      case SampleRing.START:
+        flags = ring.getFlags();
+        translationX = ring.getSnapshot(SampleRing.TRANSLATION_X);
+        translationY = ring.getSnapshot(SampleRing.TRANSLATION_Y);
+        scaleX = ring.getSnapshot(SampleRing.SCALE_X);
+        scaleY = ring.getSnapshot(SampleRing.SCALE_Y);
+        rotation = ring.getSnapshot(SampleRing.ROTATION);
+        basePivotImageX = ring.getSnapshot(SampleRing.PIVOT_IMAGE_X);
+        basePivotImageY = ring.getSnapshot(SampleRing.PIVOT_IMAGE_Y);
+        centerImageX = ring.getSnapshot(SampleRing.CENTER_IMAGE_X);
+        centerImageY = ring.getSnapshot(SampleRing.CENTER_IMAGE_Y);
+        skippedIndex = changedDown ? NONE : changedIndex;
+        anchor(false);
+        break;
+      case SampleRing.ANCHOR:
+        // Catch up with the pointers that were down before the change, then anchor on the others.
+        skippedIndex = changedDown ? changedIndex : NONE;
+        if (getPointerCount() == anchorPointerCount) {
+          update();
+        }
+        skippedIndex = changedDown ? NONE : changedIndex;
+        anchor(true);
+        break;
+      case SampleRing.MOVE:
+        skippedIndex = NONE;
+        if (getPointerCount() == anchorPointerCount) {
+          update();
+        } else {
+          anchor(true);
+        }
+        break;
+      case SampleRing.END:
+        skippedIndex = NONE;
+        if (getPointerCount() == anchorPointerCount) {
+          update();
+        }
+        break;
+    }
+    consumed++;
+    publish();
+  }
+
+  /**
+   * Starts a new similarity from the current transform and the current pointers.
+   */
+  private void anchor(boolean carryPivotImage) {
+    if (carryPivotImage) {
+      basePivotImageX += translationX - baseTranslationX;
+      basePivotImageY += translationY - baseTranslationY;
+    }
+    baseTranslationX = translationX;
+    baseTranslationY = translationY;
+    baseScaleX = scaleX;
+    baseScaleY = scaleY;
+    baseRotation = rotation;
+
+    anchorPointerCount = getPointerCount();
+    anchorCentroidX = getCentroidX();
+    anchorCentroidY = getCentroidY();
+    anchorSpan = getSpan(anchorCentroidX, anchorCentroidY);
+    previousAngle = getAngle();
+    angle = 0f;
+  }
+
+  private void update() {
+    float centroidX = getCentroidX();
+    float centroidY = getCentroidY();
+
+    float scale = 1f;
+    float theta = 0f;
+    if (anchorPointerCount >= 2) {
+      if ((flags & (1 << DirectManipulator.SCALE)) != 0 && anchorSpan > 0f) {
+        scale = getSpan(centroidX, centroidY) / anchorSpan;
+      }
+      if ((flags & (1 << DirectManipulator.ROTATE)) != 0) {
+        float currentAngle = getAngle();
+        angle += wrap(currentAngle - previousAngle);
+        previousAngle = currentAngle;
+        theta = angle;
+      }
+    }
+
+    float fromX;
+    float fromY;
+    float toX;
+    float toY;
+    if ((flags & (1 << DirectManipulator.DRAG)) != 0) {
+      fromX = anchorCentroidX;
+      fromY = anchorCentroidY;
+      toX = centroidX;
+      toY = centroidY;
+    } else {
+      fromX = toX = centerImageX;
+      fromY = toY = centerImageY;
+    }
+
+    // Map the image of the pivot through the similarity, and move the translation with it.
+    float cos = (float) Math.cos(theta);
+    float sin = (float) Math.sin(theta);
+    float vx = basePivotImageX - fromX;
+    float vy = basePivotImageY - fromY;
+    float pivotImageX = toX + scale * (cos * vx - sin * vy);
+    float pivotImageY = toY + scale * (sin * vx + cos * vy);
+
+    translationX = baseTranslationX + pivotImageX - basePivotImageX;
+    translationY = baseTranslationY + pivotImageY - basePivotImageY;
+    scaleX = baseScaleX * scale;
+    scaleY = baseScaleY * scale;
+    rotation = baseRotation + (float) Math.toDegrees(theta);
+  }
+
+  private void publish() {
+    version = version + 1;
+    resultConsumed = consumed;
+    resultTranslationX = translationX;
+    resultTranslationY = translationY;
+    resultScaleX = scaleX;
+    resultScaleY = scaleY;
+    resultRotation = rotation;
+    version = version + 1;
+  }
+
+  /**
+   * Returns the number of pointers in the head sample, leaving out the skipped one.
+   */
+  private int getPointerCount() {
+    int count = ring.getPointerCount();
+    return skippedIndex >= 0 && skippedIndex < count ? count - 1 : count;
+  }
+
+  private float getX(int index) {
+    return ring.getX(skippedIndex >= 0 && index >= skippedIndex ? index + 1 : index);
+  }
+
+  private float getY(int index) {
+    return ring.getY(skippedIndex >= 0 && index >= skippedIndex ? index + 1 : index);
+  }
+
+  private float getCentroidX() {
+    float sum = 0f;
+    int count = getPointerCount();
+    for (int i = 0; i < count; i++) {
+      sum += getX(i);
+    }
+    return count > 0 ? sum / count : 0f;
+  }
+
+  private float getCentroidY() {
+    float sum = 0f;
+    int count = getPointerCount();
+    for (int i = 0; i < count; i++) {
+      sum += getY(i);
+    }
+    return count > 0 ? sum / count : 0f;
+  }
+
+  private float getSpan(float centroidX, float centroidY) {
+    float sum = 0f;
+    int count = getPointerCount();
+    for (int i = 0; i < count; i++) {
+      float dx = getX(i) - centroidX;
+      float dy = getY(i) - centroidY;
+      sum += (float) Math.sqrt(dx * dx + dy * dy);
+    }
+    return count > 0 ? sum / count : 0f;
+  }
+
+  private float getAngle() {
+    if (getPointerCount() < 2) {
+      return 0f;
+    }
+    return (float) Math.atan2(getY(1) - getY(0), getX(1) - getX(0));
+  }
+
+  private static float wrap(float radians) {
+    if (radians > Math.PI) {
+      return radians - (float) (2 * Math.PI);
+    } else if (radians < -Math.PI) {
+      return radians + (float) (2 * Math.PI);
+    }
+    return radians;
+  }
+}
@@ -15,20 +15,25 @@
  */
 package com.google.android.material.motion.family.directmanipulation;
 
+import android.support.annotation.Nullable;
 import android.view.View;
 
 import com.google.android.material.motion.gestures.GestureRecognizer;
 import com.google.android.material.motion.runtime.NamedPerformer;
-import com.google.android.material.motion.runtime.NamedPlan;
 
 /**
  * Base abstract class for all gesture plans.
  */
-public abstract class GesturePlan extends NamedPlan<View> {
+public abstract class GesturePlan extends ManipulationPlan {
 
+  /**
+   * The gesture recognizer, or null if the performer creates one on the target's first
+   * touch-down.
+   */
+  @Nullable
   final GestureRecognizer gestureRecognizer;
 
-  GesturePlan(GestureRecognizer gestureRecognizer) {
+  GesturePlan(@Nullable GestureRecognizer gestureRecognizer) {
     this.gestureRecognizer = gestureRecognizer;
   }
 
@@ -0,0 +1,163 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.view.MotionEvent;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Records touch events into a compact binary trace that {@link GestureTraceReplayer} can play
+ * back.
+ * <p>
+ * The trace is written into a buffer of fixed capacity, so recording never allocates. Once the
+ * buffer is full, further events are dropped and {@link #isOverflowed()} returns true.
+ * <p>
+ * A trace starts with the magic number {@code GTRC} and a version byte. Each event is then
+ * written as unsigned and zigzag varints:
+ * <ul>
+ * <li>the action, as returned by {@link MotionEvent#getAction()},</li>
+ * <li>the pointer count, the history size, and each pointer id,</li>
+ * <li>the time of the oldest sample since the down time,</li>
+ * <li>for every historical sample and then the current one, the time since the previous sample
+ * and the coordinates of each pointer. Coordinates are fixed point with a resolution of 1/256
+ * pixel. The first sample is absolute, and later samples are deltas from the same pointer's
+ * previous sample.</li>
+ * </ul>
+ * Every time delta is relative to the previous sample in the trace, so only the first event
+ * stores a full timestamp.
+ *
+ * @see ManipulationPlan#setTraceRecorder(GestureTraceRecorder)
+ */
+public final class GestureTraceRecorder {
+
+  static final int MAGIC = 0x47545243;
+  static final byte VERSION = 1;
+  static final int MAX_POINTERS = 16;
+  static final float COORDINATE_SCALE = 256f;
+  /**
+   * The size of the magic number and version that start every trace.
+   */
+  static final int HEADER_SIZE = 5;
+
+  private static final int MAX_VARINT_SIZE = 10;
+
+  private final ByteBuffer buffer;
+  private final int[] previousCoordinates = new int[MAX_POINTERS * 2];
+  private long previousTime;
+  private boolean overflowed;
+
+  /**
+   * Creates a recorder that keeps at most the given number of bytes of trace.
+   *
+   * @throws IllegalArgumentException If the capacity cannot hold the header of a trace.
+   */
+  public GestureTraceRecorder(int capacityBytes) {
+    if (capacityBytes < HEADER_SIZE) {
+      throw new IllegalArgumentException(
+        "The capacity must be at least " + HEADER_SIZE + " bytes, but was " + capacityBytes);
+    }
+    buffer = ByteBuffer.allocate(capacityBytes);
+    clear();
+  }
+
+  /**
+   * Appends an event to the trace.
+   */
+  public void record(MotionEvent event) {
+    int pointerCount = event.getPointerCount();
+    int historySize = event.getHistorySize();
+    if (overflowed || pointerCount > MAX_POINTERS) {
+      return;
+    }
+
+    int sampleCount = historySize + 1;
+    int worstCase = MAX_VARINT_SIZE * (4 + pointerCount + sampleCount * (1 + pointerCount * 2));
+    if (buffer.remaining() < worstCase) {
+      overflowed = true;
+      return;
+    }
+
+    writeVarLong(event.getAction());
+    writeVarLong(pointerCount);
+    writeVarLong(historySize);
+    for (int i = 0; i < pointerCount; i++) {
+      writeVarLong(event.getPointerId(i));
+    }
+
+    long firstTime = historySize > 0 ? event.getHistoricalEventTime(0) : event.getEventTime();
+    writeVarLong(firstTime - event.getDownTime());
+
+    for (int h = 0; h <= historySize; h++) {
+      long time = h < historySize ? event.getHistoricalEventTime(h) : event.getEventTime();
+      writeVarLong(previousTime < 0 ? time : time - previousTime);
+      previousTime = time;
+
+      for (int i = 0; i < pointerCount; i++) {
+        float x = h < historySize ? event.getHistoricalX(i, h) : event.getX(i);
+        float y = h < historySize ? event.getHistoricalY(i, h) : event.getY(i);
+        writeCoordinate(i * 2, x, h == 0);
+        writeCoordinate(i * 2 + 1, y, h == 0);
+      }
+    }
+  }
+
+  public boolean isOverflowed() {
+    return overflowed;
+  }
+
+  /**
+   * Returns the size of the trace in bytes.
+   */
+  public int getSize() {
+    return buffer.position();
+  }
+
+  /**
+   * Discards the recorded events.
+   */
+  public void clear() {
+    buffer.clear();
+    buffer.putInt(MAGIC);
+    buffer.put(VERSION);
+    previousTime = -1;
+    overflowed = false;
+  }
+
+  /**
+   * Writes the trace to the given stream.
+   */
+  public void writeTo(OutputStream out) throws IOException {
+    out.write(buffer.array(), buffer.arrayOffset(), buffer.position());
+  }
+
+  private void writeCoordinate(int index, float value, boolean absolute) {
+    int fixed = Math.round(value * COORDINATE_SCALE);
+    int delta = absolute ? fixed : fixed - previousCoordinates[index];
+    previousCoordinates[index] = fixed;
+    writeVarLong(((delta << 1) ^ (delta >> 31)) & 0xFFFFFFFFL);
+  }
+
+  private void writeVarLong(long value) {
+    while ((value & ~0x7FL) != 0) {
+      buffer.put((byte) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    buffer.put((byte) value);
+  }
+}
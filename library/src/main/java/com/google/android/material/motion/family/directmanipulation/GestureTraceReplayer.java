@@ -0,0 +1,256 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.os.SystemClock;
+import android.support.annotation.Nullable;
+import android.support.annotation.VisibleForTesting;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.MotionEvent.PointerCoords;
+import android.view.MotionEvent.PointerProperties;
+import android.view.View;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Plays back a trace written by {@link GestureTraceRecorder} by dispatching its events to a
+ * view, either as fast as possible or in real time.
+ * <p>
+ * Event times are shifted so that the trace starts at the time it is replayed. Coordinates are
+ * replayed as they were delivered to the recorded view, so a target in the same initial state
+ * receives the same gestures.
+ */
+public final class GestureTraceReplayer {
+
+  /**
+   * Builds the event that is dispatched for the decoded event.
+   */
+  @VisibleForTesting
+  interface EventFactory {
+
+    MotionEvent obtainEvent(GestureTraceReplayer replayer, long offset);
+  }
+
+  /**
+   * Replaces {@link #obtainEvent(long)} in tests, whose runtime cannot build events from pointer
+   * arrays.
+   */
+  @Nullable
+  @VisibleForTesting
+  EventFactory eventFactory;
+
+  private final ByteBuffer trace;
+  private final int start;
+
+  /* The decoded event. */
+  int action;
+  int pointerCount;
+  int sampleCount;
+  long downTime;
+  final int[] pointerIds = new int[GestureTraceRecorder.MAX_POINTERS];
+  long[] sampleTimes = new long[8];
+  float[] coordinates = new float[8 * GestureTraceRecorder.MAX_POINTERS * 2];
+  private final int[] previousCoordinates = new int[GestureTraceRecorder.MAX_POINTERS * 2];
+  private long previousTime;
+
+  private final PointerProperties[] properties =
+    new PointerProperties[GestureTraceRecorder.MAX_POINTERS];
+  private final PointerCoords[] coords = new PointerCoords[GestureTraceRecorder.MAX_POINTERS];
+
+  /**
+   * Creates a replayer for the trace between the buffer's position and limit.
+   *
+   * @throws IllegalArgumentException If the buffer does not hold a trace of a supported version.
+   */
+  public GestureTraceReplayer(ByteBuffer trace) {
+    this.trace = trace;
+    if (trace.remaining() < GestureTraceRecorder.HEADER_SIZE
+      || trace.getInt() != GestureTraceRecorder.MAGIC) {
+      throw new IllegalArgumentException("Not a gesture trace.");
+    }
+    byte version = trace.get();
+    if (version != GestureTraceRecorder.VERSION) {
+      throw new IllegalArgumentException("Unsupported gesture trace version " + version);
+    }
+    start = trace.position();
+
+    for (int i = 0; i < GestureTraceRecorder.MAX_POINTERS; i++) {
+      properties[i] = new PointerProperties();
+      coords[i] = new PointerCoords();
+    }
+    rewind();
+  }
+
+  /**
+   * Creates a replayer that memory-maps the given trace file.
+   */
+  public static GestureTraceReplayer map(File file) throws IOException {
+    RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = randomAccessFile.getChannel();
+      ByteBuffer trace = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      return new GestureTraceReplayer(trace);
+    } finally {
+      // The mapping stays valid after the file is closed.
+      randomAccessFile.close();
+    }
+  }
+
+  /**
+   * Moves back to the first event of the trace.
+   */
+  public void rewind() {
+    trace.position(start);
+    previousTime = -1;
+  }
+
+  /**
+   * Dispatches every remaining event of the trace to the view, without waiting between events.
+   *
+   * @return The number of events that were dispatched.
+   */
+  public int replay(View target) {
+    int events = 0;
+    long offset = -1;
+    while (readEvent()) {
+      if (offset < 0) {
+        offset = SystemClock.uptimeMillis() - sampleTimes[0];
+      }
+      dispatch(target, offset);
+      events++;
+    }
+    return events;
+  }
+
+  /**
+   * Dispatches the remaining events of the trace to the view on its UI thread, each at its
+   * recorded time relative to the first one.
+   */
+  public void replayInRealTime(final View target) {
+    if (!readEvent()) {
+      return;
+    }
+    final long offset = SystemClock.uptimeMillis() - sampleTimes[0];
+    target.post(new Runnable() {
+      @Override
+      public void run() {
+        dispatch(target, offset);
+        if (readEvent()) {
+          long delay = sampleTimes[sampleCount - 1] + offset - SystemClock.uptimeMillis();
+          target.postDelayed(this, Math.max(0, delay));
+        }
+      }
+    });
+  }
+
+  private void dispatch(View target, long offset) {
+    MotionEvent event =
+      eventFactory != null ? eventFactory.obtainEvent(this, offset) : obtainEvent(offset);
+    target.dispatchTouchEvent(event);
+    event.recycle();
+  }
+
+  /**
+   * Decodes the next event of the trace.
+   *
+   * @return Whether there was another event.
+   */
+  boolean readEvent() {
+    if (!trace.hasRemaining()) {
+      return false;
+    }
+
+    action = (int) readVarLong();
+    pointerCount = (int) readVarLong();
+    sampleCount = (int) readVarLong() + 1;
+    for (int i = 0; i < pointerCount; i++) {
+      pointerIds[i] = (int) readVarLong();
+    }
+    long downDelta = readVarLong();
+
+    if (sampleTimes.length < sampleCount) {
+      sampleTimes = new long[sampleCount];
+      coordinates = new float[sampleCount * GestureTraceRecorder.MAX_POINTERS * 2];
+    }
+
+    for (int s = 0; s < sampleCount; s++) {
+      long delta = readVarLong();
+      long time = previousTime < 0 ? delta : previousTime + delta;
+      sampleTimes[s] = time;
+      previousTime = time;
+
+      for (int i = 0; i < pointerCount * 2; i++) {
+        long zigzag = readVarLong();
+        int value = (int) (zigzag >>> 1) ^ -(int) (zigzag & 1);
+        int fixed = s == 0 ? value : previousCoordinates[i] + value;
+        previousCoordinates[i] = fixed;
+        coordinates[s * GestureTraceRecorder.MAX_POINTERS * 2 + i] =
+          fixed / GestureTraceRecorder.COORDINATE_SCALE;
+      }
+    }
+    downTime = sampleTimes[0] - downDelta;
+    return true;
+  }
+
+  /**
+   * Creates a {@link MotionEvent} for the decoded event, with its times shifted by the offset.
+   */
+  MotionEvent obtainEvent(long offset) {
+    for (int i = 0; i < pointerCount; i++) {
+      properties[i].clear();
+      properties[i].id = pointerIds[i];
+      properties[i].toolType = MotionEvent.TOOL_TYPE_FINGER;
+    }
+
+    setCoords(0);
+    MotionEvent event = MotionEvent.obtain(
+      downTime + offset, sampleTimes[0] + offset, action, pointerCount, properties, coords,
+      0, 0, 1f, 1f, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+    for (int s = 1; s < sampleCount; s++) {
+      setCoords(s);
+      event.addBatch(sampleTimes[s] + offset, coords, 0);
+    }
+    return event;
+  }
+
+  private void setCoords(int sample) {
+    int base = sample * GestureTraceRecorder.MAX_POINTERS * 2;
+    for (int i = 0; i < pointerCount; i++) {
+      coords[i].clear();
+      coords[i].x = coordinates[base + i * 2];
+      coords[i].y = coordinates[base + i * 2 + 1];
+      coords[i].pressure = 1f;
+      coords[i].size = 1f;
+    }
+  }
+
+  private long readVarLong() {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      b = trace.get();
+      value |= (long) (b & 0x7F) << shift;
+      shift += 7;
+    } while ((b & 0x80) != 0);
+    return value;
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * A fixed-size histogram of durations in microseconds.
+ * <p>
+ * Buckets are log-linear, as in HdrHistogram: each power of two is split into 32 equal
+ * sub-buckets, so every recorded value is kept within about 3% of its true value. Recording
+ * never allocates. The last bucket starts at {@code 63 << MAX_SHIFT} microseconds, about 19 hours,
+ * and also counts every larger value.
+ * <p>
+ * Histograms are recorded on the UI thread and must only be read there, or copied there with
+ * {@link #copyInto(LatencyHistogram)}.
+ */
+public final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_SHIFT = 30;
+  private static final int BUCKET_COUNT = (MAX_SHIFT + 2) * SUB_BUCKET_COUNT;
+
+  private final int[] counts = new int[BUCKET_COUNT];
+  private long totalCount;
+  private long sum;
+  private long max;
+
+  /**
+   * Records a duration in microseconds. Negative durations are recorded as 0.
+   */
+  public void record(long micros) {
+    long value = Math.max(0, micros);
+    counts[getIndex(value)]++;
+    totalCount++;
+    sum += value;
+    max = Math.max(max, value);
+  }
+
+  public long getCount() {
+    return totalCount;
+  }
+
+  public long getMax() {
+    return max;
+  }
+
+  public double getMean() {
+    return totalCount > 0 ? (double) sum / totalCount : 0;
+  }
+
+  /**
+   * Returns the largest value, within the histogram's precision, that the given percentage of
+   * the recorded values are at or below.
+   *
+   * @param percentile A percentage in [0, 100].
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(getHighestValue(i), max);
+      }
+    }
+    return max;
+  }
+
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = 0;
+    }
+    totalCount = 0;
+    sum = 0;
+    max = 0;
+  }
+
+  /**
+   * Copies every count into the given histogram, replacing its contents.
+   */
+  public void copyInto(LatencyHistogram other) {
+    System.arraycopy(counts, 0, other.counts, 0, BUCKET_COUNT);
+    other.totalCount = totalCount;
+    other.sum = sum;
+    other.max = max;
+  }
+
+  private static int getIndex(long value) {
+    if (value < SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    if (shift > MAX_SHIFT) {
+      return BUCKET_COUNT - 1;
+    }
+    int subBucket = (int) (value >> shift) - SUB_BUCKET_COUNT;
+    return (shift + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  private static long getHighestValue(int index) {
+    if (index < SUB_BUCKET_COUNT) {
+      return index;
+    }
+    int shift = index / SUB_BUCKET_COUNT - 1;
+    long top = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return ((top + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+import android.support.annotation.Nullable;
+import android.view.View;
+
+import com.google.android.material.motion.family.directmanipulation.GesturePerformer.FrameCommitListener;
+import com.google.android.material.motion.runtime.NamedPlan;
+
+/**
+ * Base abstract class for the plans that manipulate a view with gestures. Holds the options that
+ * are shared by every gesture plan on the same target.
+ */
+public abstract class ManipulationPlan extends NamedPlan<View> {
+
+  PerformerOptions options = new PerformerOptions();
+  boolean momentumEnabled;
+
+  ManipulationPlan() {
+  }
+
+  /**
+   * Keeps the target moving with its release velocity after the gesture is recognized, until the
+   * motion settles or the target is touched again.
+   */
+  public void setMomentumEnabled(boolean momentumEnabled) {
+    this.momentumEnabled = momentumEnabled;
+  }
+
+  /**
+   * Releases the gesture recognizers that the performer created, and their per-gesture state, once
+   * no finger has touched the target for the given delay, in milliseconds. They are created again
+   * on the next touch-down. A negative delay, the default, keeps them.
+   * <p>
+   * Provided gesture recognizers are never released. Applies to every gesture plan on the same
+   * target.
+   */
+  public void setRecognizerReleaseDelay(long delayMillis) {
+    options.recognizerReleaseDelayMillis = delayMillis;
+  }
+
+  /**
+   * Defers writing the target's transform to the next animation frame. Touch events that arrive
+   * within the same frame then only update the gesture recognizers, and the target is written
+   * once with the latest state.
+   * <p>
+   * Applies to every gesture plan on the same target.
+   */
+  public void setFrameAligned(boolean frameAligned) {
+    options.frameAligned = frameAligned;
+  }
+
+  /**
+   * Sets a listener that is notified each time a frame-aligned target's transform is written.
+   */
+  public void setFrameCommitListener(@Nullable FrameCommitListener listener) {
+    options.frameCommitListener = listener;
+  }
+
+  /**
+   * Switches the target to {@link View#LAYER_TYPE_HARDWARE} when the first gesture begins, and
+   * restores its previous layer type when the last gesture ends. The target's content is then only
+   * re-composited, not redrawn, while it is transformed.
+   * <p>
+   * Applies to every gesture plan on the same target.
+   */
+  public void setHardwareLayerEnabled(boolean hardwareLayerEnabled) {
+    options.hardwareLayerEnabled = hardwareLayerEnabled;
+  }
+
+  /**
+   * Solves the gestures on a worker thread. The UI thread only copies the pointers of each touch
+   * event and writes the latest solved transform once per animation frame.
+   * <p>
+   * The solver differs from the gesture recognizers:
+   * <ul>
+   * <li>The target's pivot is not moved.</li>
+   * <li>The rotation follows the first two pointers only.</li>
+   * <li>The gesture recognizers' slop, state listeners, and momentum are not used.</li>
+   * <li>Samples are dropped while the worker falls behind.</li>
+   * </ul>
+   * It requires the performer to own the target's touch listener, so the gesture recognizers must
+   * not already be attached to a view.
+   * <p>
+   * Applies to every gesture plan on the same target.
+   */
+  public void setPipelined(boolean pipelined) {
+    options.pipelined = pipelined;
+  }
+
+  /**
+   * Extrapolates the pointers by the given horizon, in milliseconds, before the drag translation
+   * and the pinch and rotation centroid are applied. Choose the horizon close to the device's
+   * touch-to-display latency. A horizon of 0 disables prediction.
+   * <p>
+   * The prediction is corrected by every real sample, and the final transform of a gesture is
+   * never predicted. Applies to every gesture plan on the same target.
+   */
+  public void setPredictionHorizon(long horizonMillis) {
+    options.predictionHorizonMillis = horizonMillis;
+  }
+
+  /**
+   * Returns the statistics of the touch prediction of this plan's target.
+   */
+  public PredictionStatistics getPredictionStatistics() {
+    return options.predictionStatistics;
+  }
+
+  /**
+   * Returns the operational counters of this plan's target. They are always kept, and can be
+   * printed from a dump hook with {@link GestureCounters#dump(String, java.io.PrintWriter)}.
+   * <p>
+   * Once added, every gesture plan on the same target returns the same counters.
+   */
+  public GestureCounters getCounters() {
+    return options.counters;
+  }
+
+  /**
+   * Records event-to-write latencies and the time spent in each gesture recognizer into
+   * fixed-size histograms, reachable from {@link #getMetrics()}.
+   * <p>
+   * Applies to every gesture plan on the same target.
+   */
+  public void setMetricsEnabled(boolean metricsEnabled) {
+    options.metrics = metricsEnabled ? getOrCreateMetrics() : null;
+  }
+
+  /**
+   * Returns the metrics of this plan's target, or null if they are not enabled.
+   */
+  @Nullable
+  public GestureMetrics getMetrics() {
+    return options.metrics;
+  }
+
+  private GestureMetrics getOrCreateMetrics() {
+    return options.metrics != null ? options.metrics : new GestureMetrics();
+  }
+
+  /**
+   * Steps down to cheaper work while frame deadlines are missed, and back up when frames recover.
+   * The tiers skip intermediate moves, then stop moving the pivot to the gesture's centroid, then
+   * stop updating the rotation. The current tier is reachable from {@link
+   * #getAdaptiveDegradation()}.
+   * <p>
+   * Applies to every gesture plan on the same target.
+   */
+  public void setAdaptiveDegradationEnabled(boolean adaptiveDegradationEnabled) {
+    options.degradation = adaptiveDegradationEnabled ? getOrCreateDegradation() : null;
+  }
+
+  /**
+   * Returns the adaptive degradation of this plan's target, or null if it is not enabled.
+   */
+  @Nullable
+  public AdaptiveDegradation getAdaptiveDegradation() {
+    return options.degradation;
+  }
+
+  private AdaptiveDegradation getOrCreateDegradation() {
+    return options.degradation != null ? options.degradation : new AdaptiveDegradation();
+  }
+
+  /**
+   * Records every touch event that the target's performer receives into the given recorder.
+   * <p>
+   * Applies to every gesture plan on the same target.
+   */
+  public void setTraceRecorder(@Nullable GestureTraceRecorder traceRecorder) {
+    options.traceRecorder = traceRecorder;
+  }
+
+  /**
+   * Composes the drag, scale, and rotation into the given matrix instead of the target's
+   * translation, scale, rotation, and pivot. An {@link android.widget.ImageView} target, with the
+   * {@link android.widget.ImageView.ScaleType#MATRIX MATRIX} scale type, receives the matrix as
+   * its image matrix. Any other target is invalidated and should apply the matrix when it draws.
+   * <p>
+   * The matrix is updated in place, so it can be read at any time. Momentum, prediction, and
+   * pipelining do not apply in this mode. Applies to every gesture plan on the same target.
+   */
+  public void setTargetMatrix(@Nullable Matrix matrix) {
+    options.targetMatrix = matrix;
+  }
+
+  /**
+   * Composes the drag, scale, and rotation into the given shared transform instead of the
+   * target's properties. The transform is published without locks, so that a render thread, for
+   * example one drawing into a {@link android.view.SurfaceView} target, can read the latest
+   * manipulation every frame.
+   * <p>
+   * The same modes apply as with {@link #setTargetMatrix(Matrix)}, which this replaces. Applies to
+   * every gesture plan on the same target.
+   */
+  public void setSharedTransform(@Nullable SharedTransform sharedTransform) {
+    options.sharedTransform = sharedTransform;
+  }
+}
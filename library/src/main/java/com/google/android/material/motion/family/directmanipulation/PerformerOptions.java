@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+import android.support.annotation.Nullable;
+
+import com.google.android.material.motion.family.directmanipulation.GesturePerformer.FrameCommitListener;
+
+/**
+ * Options for the {@link GesturePerformer} of a target. The options of every gesture plan added
+ * to the same target are merged into its performer.
+ */
+final class PerformerOptions {
+
+  boolean frameAligned;
+  boolean hardwareLayerEnabled;
+  boolean pipelined;
+  long predictionHorizonMillis;
+  long recognizerReleaseDelayMillis = -1;
+  final PredictionStatistics predictionStatistics = new PredictionStatistics();
+  GestureCounters counters = new GestureCounters();
+  @Nullable
+  FrameCommitListener frameCommitListener;
+  @Nullable
+  GestureMetrics metrics;
+  @Nullable
+  GestureTraceRecorder traceRecorder;
+  @Nullable
+  Matrix targetMatrix;
+  @Nullable
+  SharedTransform sharedTransform;
+  @Nullable
+  AdaptiveDegradation degradation;
+}
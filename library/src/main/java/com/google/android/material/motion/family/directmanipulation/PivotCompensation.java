@@ -0,0 +1,55 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * Closed-form pivot compensation.
+ * <p>
+ * A view maps a point {@code v} in its own coordinate space to {@code t + p + RS(v - p)} in its
+ * parent, where {@code t} is its translation, {@code p} its pivot, and {@code RS} its rotation and
+ * scale. Moving the pivot from {@code p} to {@code c} therefore moves the view by {@code (I -
+ * RS)(c - p)}, which is undone by adding {@code (RS - I)(c - p)} to its translation.
+ */
+final class PivotCompensation {
+
+  private PivotCompensation() {}
+
+  /**
+   * Calculates the translation that keeps a view in place while its pivot is moved.
+   *
+   * @param rotation The view's rotation in degrees.
+   * @param out Receives the x and y translation adjustment.
+   */
+  static void getTranslationAdjustment(
+    float fromPivotX,
+    float fromPivotY,
+    float toPivotX,
+    float toPivotY,
+    float scaleX,
+    float scaleY,
+    float rotation,
+    float[] out) {
+    float dx = (toPivotX - fromPivotX) * scaleX;
+    float dy = (toPivotY - fromPivotY) * scaleY;
+
+    double radians = Math.toRadians(rotation);
+    float cos = (float) Math.cos(radians);
+    float sin = (float) Math.sin(radians);
+
+    out[0] = cos * dx - sin * dy - (toPivotX - fromPivotX);
+    out[1] = sin * dx + cos * dy - (toPivotY - fromPivotY);
+  }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * Statistics of the touch prediction of a target, used to tune its prediction horizon.
+ * <p>
+ * Each prediction is compared against the real pointer position once a sample at or after the
+ * predicted time arrives.
+ *
+ * @see ManipulationPlan#setPredictionHorizon(long)
+ */
+public final class PredictionStatistics {
+
+  /**
+   * The default largest error, in pixels, of a prediction that counts as accurate.
+   */
+  public static final float DEFAULT_ACCURATE_ERROR = 4f;
+
+  private float accurateError = DEFAULT_ACCURATE_ERROR;
+  private int predictionCount;
+  private int measuredCount;
+  private int accurateCount;
+  private double errorSum;
+  private float maxError;
+  private long latencySavedSum;
+
+  PredictionStatistics() {
+  }
+
+  /**
+   * Returns the number of events whose transform used a prediction.
+   */
+  public int getPredictionCount() {
+    return predictionCount;
+  }
+
+  /**
+   * Returns the number of predictions that were compared against a real sample.
+   */
+  public int getMeasuredCount() {
+    return measuredCount;
+  }
+
+  /**
+   * Returns the average distance, in pixels, between a predicted and the real pointer position.
+   */
+  public float getMeanError() {
+    return measuredCount > 0 ? (float) (errorSum / measuredCount) : 0f;
+  }
+
+  /**
+   * Returns the largest distance, in pixels, between a predicted and the real pointer position.
+   */
+  public float getMaxError() {
+    return maxError;
+  }
+
+  /**
+   * Sets the largest error, in pixels, of a prediction that counts as accurate.
+   */
+  public void setAccurateError(float pixels) {
+    accurateError = pixels;
+  }
+
+  public float getAccurateError() {
+    return accurateError;
+  }
+
+  /**
+   * Returns the number of measured predictions whose error was at most {@link
+   * #getAccurateError()}.
+   */
+  public int getAccurateCount() {
+    return accurateCount;
+  }
+
+  /**
+   * Returns the average time, in milliseconds, by which the measured predictions led the real
+   * pointer. Only accurate predictions count towards it; the others saved no latency.
+   */
+  public float getMeanLatencySavedMillis() {
+    return measuredCount > 0 ? (float) latencySavedSum / measuredCount : 0f;
+  }
+
+  public void reset() {
+    predictionCount = 0;
+    measuredCount = 0;
+    accurateCount = 0;
+    errorSum = 0;
+    maxError = 0f;
+    latencySavedSum = 0;
+  }
+
+  void onPrediction() {
+    predictionCount++;
+  }
+
+  void onMeasured(float error, long horizonMillis) {
+    measuredCount++;
+    errorSum += error;
+    maxError = Math.max(maxError, error);
+    if (error <= accurateError) {
+      accurateCount++;
+      latencySavedSum += horizonMillis;
+    }
+  }
+}
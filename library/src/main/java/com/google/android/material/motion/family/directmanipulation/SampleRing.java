@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * A preallocated single-producer, single-consumer ring buffer of pointer samples.
+ * <p>
+ * The producer claims the tail slot with {@link #tryClaim()}, fills it, and makes it visible with
+ * {@link #publish()}. The consumer reads the head slot while {@link #isEmpty()} is false and frees
+ * it with {@link #release()}. The volatile head and tail order the slot contents between the two
+ * threads, so no locks are taken.
+ */
+final class SampleRing {
+
+  /* Sample types. */
+  static final int START = 0;
+  static final int MOVE = 1;
+  static final int ANCHOR = 2;
+  static final int END = 3;
+
+  /**
+   * The number of pointers that are copied from each event. Further pointers are ignored.
+   */
+  static final int MAX_POINTERS = 5;
+
+  /* Offsets into the snapshot of a START sample. */
+  static final int TRANSLATION_X = 0;
+  static final int TRANSLATION_Y = 1;
+  static final int SCALE_X = 2;
+  static final int SCALE_Y = 3;
+  static final int ROTATION = 4;
+  static final int PIVOT_IMAGE_X = 5;
+  static final int PIVOT_IMAGE_Y = 6;
+  static final int CENTER_IMAGE_X = 7;
+  static final int CENTER_IMAGE_Y = 8;
+  static final int SNAPSHOT_SIZE = 9;
+
+  static final int CAPACITY = 256;
+  private static final int MASK = CAPACITY - 1;
+
+  private final Object[] owners = new Object[CAPACITY];
+  private final int[] types = new int[CAPACITY];
+  private final int[] flags = new int[CAPACITY];
+  private final int[] pointerCounts = new int[CAPACITY];
+  private final int[] changedIndices = new int[CAPACITY];
+  private final boolean[] changedDowns = new boolean[CAPACITY];
+  private final float[] coordinates = new float[CAPACITY * MAX_POINTERS * 2];
+  private final float[] snapshots = new float[CAPACITY * SNAPSHOT_SIZE];
+
+  /* Written by the consumer only. */
+  private volatile int head;
+  /* Written by the producer only. */
+  private volatile int tail;
+
+  /* Producer methods. */
+
+  /**
+   * Returns whether the tail slot is free to be written.
+   */
+  boolean tryClaim() {
+    return tail - head < CAPACITY;
+  }
+
+  void setSample(Object owner, int type, int flags, int pointerCount) {
+    int slot = tail & MASK;
+    owners[slot] = owner;
+    types[slot] = type;
+    this.flags[slot] = flags;
+    pointerCounts[slot] = pointerCount;
+    changedIndices[slot] = -1;
+  }
+
+  /**
+   * Marks the pointer at the index as going down or up in this sample. Must be called after {@link
+   * #setSample(Object, int, int, int)}.
+   */
+  void setChangedPointer(int index, boolean down) {
+    int slot = tail & MASK;
+    changedIndices[slot] = index;
+    changedDowns[slot] = down;
+  }
+
+  void setPointer(int index, float x, float y) {
+    int offset = ((tail & MASK) * MAX_POINTERS + index) * 2;
+    coordinates[offset] = x;
+    coordinates[offset + 1] = y;
+  }
+
+  void setSnapshot(int offset, float value) {
+    snapshots[(tail & MASK) * SNAPSHOT_SIZE + offset] = value;
+  }
+
+  /**
+   * Makes the claimed slot visible to the consumer.
+   */
+  void publish() {
+    tail = tail + 1;
+  }
+
+  /* Consumer methods. */
+
+  boolean isEmpty() {
+    return head == tail;
+  }
+
+  Object getOwner() {
+    return owners[head & MASK];
+  }
+
+  int getType() {
+    return types[head & MASK];
+  }
+
+  int getFlags() {
+    return flags[head & MASK];
+  }
+
+  int getPointerCount() {
+    return pointerCounts[head & MASK];
+  }
+
+  /**
+   * Returns the index of the pointer going down or up in this sample, or -1 if there is none.
+   */
+  int getChangedIndex() {
+    return changedIndices[head & MASK];
+  }
+
+  boolean isChangedPointerDown() {
+    return changedDowns[head & MASK];
+  }
+
+  float getX(int index) {
+    return coordinates[((head & MASK) * MAX_POINTERS + index) * 2];
+  }
+
+  float getY(int index) {
+    return coordinates[((head & MASK) * MAX_POINTERS + index) * 2 + 1];
+  }
+
+  float getSnapshot(int offset) {
+    return snapshots[(head & MASK) * SNAPSHOT_SIZE + offset];
+  }
+
+  /**
+   * Frees the head slot for the producer.
+   */
+  void release() {
+    owners[head & MASK] = null;
+    head = head + 1;
+  }
+}
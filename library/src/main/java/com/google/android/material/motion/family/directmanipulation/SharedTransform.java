@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A transform that is written by the gestures on the UI thread and read without locks by another
+ * thread, such as the render loop of a {@link android.view.SurfaceView} or {@link
+ * android.view.TextureView}.
+ * <p>
+ * The transform is published as the nine values of a {@link Matrix}, in the order of {@link
+ * Matrix#getValues(float[])}, under a sequence lock. A reader copies a consistent set of values
+ * with {@link #read(float[])}, and never blocks the UI thread. A reader that is interrupted by a
+ * write retries until the write has finished.
+ */
+public final class SharedTransform {
+
+  /**
+   * The number of values in the transform.
+   */
+  public static final int SIZE = 9;
+
+  /**
+   * The transform that the gestures are composed into. Only used on the UI thread.
+   */
+  final Matrix matrix = new Matrix();
+  private final float[] values = new float[SIZE];
+
+  /* Published. Odd versions are being written. */
+  private volatile int version;
+  private final AtomicIntegerArray block = new AtomicIntegerArray(SIZE);
+
+  public SharedTransform() {
+    matrix.getValues(values);
+    publish(values);
+  }
+
+  /**
+   * Replaces the transform, for example with the initial camera of a map. Must be called on the
+   * UI thread.
+   */
+  public void set(Matrix matrix) {
+    this.matrix.set(matrix);
+    write();
+  }
+
+  /**
+   * Copies the latest transform into the given array, which must hold at least {@link #SIZE}
+   * values. May be called on any thread.
+   *
+   * @return The version of the copied transform. It changes each time the transform is written,
+   * so a render loop can skip frames in which it has not changed.
+   */
+  public int read(float[] values) {
+    while (true) {
+      int before = version;
+      if ((before & 1) == 0) {
+        for (int i = 0; i < SIZE; i++) {
+          values[i] = Float.intBitsToFloat(block.get(i));
+        }
+        if (version == before) {
+          return before;
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the version of the latest transform. May be called on any thread.
+   */
+  public int getVersion() {
+    return version & ~1;
+  }
+
+  /**
+   * Publishes {@link #matrix}.
+   */
+  void write() {
+    matrix.getValues(values);
+    publish(values);
+  }
+
+  void publish(float[] values) {
+    version = version + 1;
+    for (int i = 0; i < SIZE; i++) {
+      block.set(i, Float.floatToRawIntBits(values[i]));
+    }
+    version = version + 1;
+  }
+}
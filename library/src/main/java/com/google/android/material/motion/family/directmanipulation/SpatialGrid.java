@@ -0,0 +1,158 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * A uniform grid that indexes integer items by their bounding box, so that the items under a
+ * point can be found without visiting every item.
+ * <p>
+ * Items are identified by an index in {@code [0, itemCount)}. Bounds outside of the grid are
+ * clamped to its edge cells, so callers should test candidates precisely.
+ */
+final class SpatialGrid {
+
+  private static final int INITIAL_CELL_CAPACITY = 4;
+
+  private final int cellSize;
+
+  private int columns;
+  private int rows;
+  private int[][] cells = new int[0][];
+  private int[] counts = new int[0];
+
+  /**
+   * The cell range of each item: first column, first row, last column, last row. An item that is
+   * not in the grid has a first column of -1.
+   */
+  private int[] ranges = new int[0];
+
+  SpatialGrid(int cellSize) {
+    this.cellSize = cellSize;
+  }
+
+  /**
+   * Empties the grid and resizes it to cover the given area and number of items. Storage is only
+   * reallocated when it needs to grow.
+   */
+  void reset(int width, int height, int itemCount) {
+    columns = Math.max(1, (width + cellSize - 1) / cellSize);
+    rows = Math.max(1, (height + cellSize - 1) / cellSize);
+
+    int cellCount = columns * rows;
+    if (cells.length < cellCount) {
+      int[][] newCells = new int[cellCount][];
+      System.arraycopy(cells, 0, newCells, 0, cells.length);
+      cells = newCells;
+      counts = new int[cellCount];
+    }
+    for (int i = 0; i < cellCount; i++) {
+      counts[i] = 0;
+    }
+
+    if (ranges.length < itemCount * 4) {
+      ranges = new int[itemCount * 4];
+    }
+    for (int i = 0; i < itemCount; i++) {
+      ranges[i * 4] = -1;
+    }
+  }
+
+  /**
+   * Adds an item with the given bounds.
+   */
+  void insert(int item, int left, int top, int right, int bottom) {
+    int firstColumn = clamp(left / cellSize, columns);
+    int firstRow = clamp(top / cellSize, rows);
+    int lastColumn = clamp(right / cellSize, columns);
+    int lastRow = clamp(bottom / cellSize, rows);
+
+    ranges[item * 4] = firstColumn;
+    ranges[item * 4 + 1] = firstRow;
+    ranges[item * 4 + 2] = lastColumn;
+    ranges[item * 4 + 3] = lastRow;
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        add(row * columns + column, item);
+      }
+    }
+  }
+
+  /**
+   * Removes an item. Does nothing if the item is not in the grid.
+   */
+  void remove(int item) {
+    int firstColumn = ranges[item * 4];
+    if (firstColumn == -1) {
+      return;
+    }
+    int firstRow = ranges[item * 4 + 1];
+    int lastColumn = ranges[item * 4 + 2];
+    int lastRow = ranges[item * 4 + 3];
+
+    for (int row = firstRow; row <= lastRow; row++) {
+      for (int column = firstColumn; column <= lastColumn; column++) {
+        remove(row * columns + column, item);
+      }
+    }
+    ranges[item * 4] = -1;
+  }
+
+  /**
+   * Returns the cell that contains the given point, clamped to the grid.
+   */
+  int getCell(float x, float y) {
+    return clamp((int) y / cellSize, rows) * columns + clamp((int) x / cellSize, columns);
+  }
+
+  int getItemCount(int cell) {
+    return counts[cell];
+  }
+
+  int getItem(int cell, int index) {
+    return cells[cell][index];
+  }
+
+  private void add(int cell, int item) {
+    int[] items = cells[cell];
+    int count = counts[cell];
+    if (items == null) {
+      items = cells[cell] = new int[INITIAL_CELL_CAPACITY];
+    } else if (count == items.length) {
+      int[] newItems = new int[count * 2];
+      System.arraycopy(items, 0, newItems, 0, count);
+      items = cells[cell] = newItems;
+    }
+    items[count] = item;
+    counts[cell] = count + 1;
+  }
+
+  private void remove(int cell, int item) {
+    int[] items = cells[cell];
+    int count = counts[cell];
+    for (int i = 0; i < count; i++) {
+      if (items[i] == item) {
+        items[i] = items[count - 1];
+        counts[cell] = count - 1;
+        return;
+      }
+    }
+  }
+
+  private static int clamp(int index, int size) {
+    return Math.max(0, Math.min(index, size - 1));
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+import android.support.annotation.Nullable;
+import android.view.View;
+import android.widget.ImageView;
+
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+
+/**
+ * Composes the drag, scale, and rotation of the gestures into a caller-owned {@link Matrix}
+ * instead of the target's properties.
+ * <p>
+ * Each change is post-concatenated as a delta since the previous event, with scale and rotation
+ * around the gesture's current centroid. The target itself is never transformed, so the centroid
+ * is already in the matrix's destination coordinates and no pivot compensation is needed.
+ */
+final class TargetMatrix {
+
+  final Matrix matrix;
+  @Nullable
+  private final SharedTransform sharedTransform;
+
+  private float lastTranslationX;
+  private float lastTranslationY;
+  private float lastScale;
+  private float lastRotation;
+  private boolean dirty;
+
+  TargetMatrix(Matrix matrix) {
+    this.matrix = matrix;
+    this.sharedTransform = null;
+  }
+
+  /**
+   * Composes into the shared transform's matrix, and publishes it instead of handing it to the
+   * target.
+   */
+  TargetMatrix(SharedTransform sharedTransform) {
+    this.matrix = sharedTransform.matrix;
+    this.sharedTransform = sharedTransform;
+  }
+
+  /**
+   * Applies the change of the gesture recognizer in the given slot to the matrix. A gesture's
+   * values are relative to where it began, so they are tracked from the identity when it begins.
+   */
+  void onStateChanged(int slot, GestureRecognizer gestureRecognizer) {
+    switch (gestureRecognizer.getState()) {
+      case GestureRecognizer.BEGAN:
+        start(slot);
+        // fall through
+      case GestureRecognizer.CHANGED:
+        change(slot, gestureRecognizer);
+        break;
+    }
+  }
+
+  private void start(int slot) {
+    switch (slot) {
+      case DirectManipulator.DRAG:
+        lastTranslationX = 0f;
+        lastTranslationY = 0f;
+        break;
+      case DirectManipulator.SCALE:
+        lastScale = 1f;
+        break;
+      case DirectManipulator.ROTATE:
+        lastRotation = 0f;
+        break;
+    }
+  }
+
+  private void change(int slot, GestureRecognizer gestureRecognizer) {
+    switch (slot) {
+      case DirectManipulator.DRAG:
+        DragGestureRecognizer drag = (DragGestureRecognizer) gestureRecognizer;
+        float translationX = drag.getTranslationX();
+        float translationY = drag.getTranslationY();
+        matrix.postTranslate(translationX - lastTranslationX, translationY - lastTranslationY);
+        lastTranslationX = translationX;
+        lastTranslationY = translationY;
+        break;
+      case DirectManipulator.SCALE:
+        float scale = ((ScaleGestureRecognizer) gestureRecognizer).getScale();
+        if (lastScale != 0f) {
+          float factor = scale / lastScale;
+          matrix.postScale(
+            factor, factor, gestureRecognizer.getCentroidX(), gestureRecognizer.getCentroidY());
+        }
+        lastScale = scale;
+        break;
+      case DirectManipulator.ROTATE:
+        float rotation = ((RotateGestureRecognizer) gestureRecognizer).getRotation();
+        matrix.postRotate(
+          (float) ((rotation - lastRotation) * (180 / Math.PI)),
+          gestureRecognizer.getCentroidX(),
+          gestureRecognizer.getCentroidY());
+        lastRotation = rotation;
+        break;
+    }
+    dirty = true;
+  }
+
+  /**
+   * Hands the matrix to the target if it has changed. A shared transform is published for its
+   * readers. Otherwise an {@link ImageView} receives the matrix as its image matrix, and any other
+   * view is invalidated so that it can apply the matrix in {@link
+   * View#draw(android.graphics.Canvas)}.
+   *
+   * @return Whether the matrix had changed.
+   */
+  boolean write(View target) {
+    if (!dirty) {
+      return false;
+    }
+    dirty = false;
+
+    if (sharedTransform != null) {
+      sharedTransform.write();
+    } else if (target instanceof ImageView) {
+      ((ImageView) target).setImageMatrix(matrix);
+    } else {
+      target.invalidate();
+    }
+    return true;
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.support.annotation.Nullable;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer.GestureStateChangeListener;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming.IsActiveToken;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming.IsActiveTokenGenerator;
+
+/**
+ * Holds a single {@link IsActiveToken} while any gesture recognizer is active or any other holder
+ * has {@link #acquire() acquired} it, and reports when the first gesture begins and the last one
+ * ends.
+ * <p>
+ * The token is taken on the first hold and terminated on the last release, so the runtime sees one
+ * activity transition per manipulation no matter how many recognizers take part in it.
+ */
+final class TokenGestureListener implements GestureStateChangeListener {
+
+  /**
+   * Listens for the transitions between no active gestures and some active gestures.
+   */
+  interface ActivityListener {
+
+    void onGesturesActive();
+
+    void onGesturesIdle();
+  }
+
+  private final ActivityListener activityListener;
+  @Nullable
+  private IsActiveTokenGenerator isActiveTokenGenerator;
+  @Nullable
+  private IsActiveToken token;
+  private GestureCounters counters = new GestureCounters();
+  /**
+   * The number of active gesture recognizers.
+   */
+  private int activeGestures;
+  /**
+   * The number of holds on the token, including one for each active gesture recognizer.
+   */
+  private int holdCount;
+
+  TokenGestureListener(ActivityListener activityListener) {
+    this.activityListener = activityListener;
+  }
+
+  void setIsActiveTokenGenerator(@Nullable IsActiveTokenGenerator isActiveTokenGenerator) {
+    this.isActiveTokenGenerator = isActiveTokenGenerator;
+  }
+
+  /**
+   * Counts the tokens issued into the given counters.
+   */
+  void setCounters(GestureCounters counters) {
+    this.counters = counters;
+  }
+
+  @Override
+  public void onStateChanged(GestureRecognizer gestureRecognizer) {
+    switch (gestureRecognizer.getState()) {
+      case GestureRecognizer.BEGAN:
+        acquire();
+        if (activeGestures++ == 0) {
+          activityListener.onGesturesActive();
+        }
+        break;
+      case GestureRecognizer.RECOGNIZED:
+      case GestureRecognizer.CANCELLED:
+        if (activeGestures == 0) {
+          break;
+        }
+        if (--activeGestures == 0) {
+          activityListener.onGesturesIdle();
+        }
+        release();
+        break;
+    }
+  }
+
+  /**
+   * Adds a hold on the token, taking it if this is the first hold.
+   */
+  void acquire() {
+    if (holdCount++ == 0 && isActiveTokenGenerator != null) {
+      token = isActiveTokenGenerator.generate();
+      counters.onTokenIssued();
+    }
+  }
+
+  /**
+   * Removes a hold on the token, terminating it if this was the last hold.
+   */
+  void release() {
+    if (--holdCount == 0 && token != null) {
+      token.terminate();
+      token = null;
+    }
+  }
+}
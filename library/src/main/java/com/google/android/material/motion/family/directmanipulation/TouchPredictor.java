@@ -0,0 +1,192 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.support.annotation.Nullable;
+
+/**
+ * Extrapolates a pointer position to a later time with a least-squares linear fit of its recent
+ * samples.
+ * <p>
+ * Every new sample replaces the previous prediction, so the prediction corrects itself as soon
+ * as real samples arrive. Up to {@link #OUTSTANDING} predictions are kept until a sample at or
+ * after their predicted time arrives, so horizons longer than the event interval are measured
+ * too.
+ */
+final class TouchPredictor {
+
+  private static final int HISTORY = 8;
+  /**
+   * Samples older than this, relative to the newest sample, are not used for the fit.
+   */
+  private static final long WINDOW_MILLIS = 50;
+  /**
+   * The number of predictions awaiting measurement. When full, the oldest is dropped.
+   */
+  private static final int OUTSTANDING = 8;
+
+  private final long[] times = new long[HISTORY];
+  private final float[] xs = new float[HISTORY];
+  private final float[] ys = new float[HISTORY];
+  private int count;
+  private int next;
+
+  @Nullable
+  private PredictionStatistics statistics;
+  private final long[] pendingTimes = new long[OUTSTANDING];
+  private final long[] pendingHorizons = new long[OUTSTANDING];
+  private final float[] pendingXs = new float[OUTSTANDING];
+  private final float[] pendingYs = new float[OUTSTANDING];
+  private int pendingCount;
+  private int pendingFirst;
+
+  float offsetX;
+  float offsetY;
+
+  void setStatistics(@Nullable PredictionStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  /**
+   * Forgets all samples, for example when the set of pointers changes.
+   */
+  void reset() {
+    count = 0;
+    next = 0;
+    pendingCount = 0;
+    pendingFirst = 0;
+    offsetX = 0f;
+    offsetY = 0f;
+  }
+
+  void addSample(long time, float x, float y) {
+    if (count > 0) {
+      int previous = (next + HISTORY - 1) % HISTORY;
+      if (time <= times[previous]) {
+        return;
+      }
+      // Predictions are queued in time order, so the due ones are at the front.
+      while (pendingCount > 0 && time >= pendingTimes[pendingFirst]) {
+        measure(times[previous], xs[previous], ys[previous], time, x, y);
+      }
+    }
+
+    times[next] = time;
+    xs[next] = x;
+    ys[next] = y;
+    next = (next + 1) % HISTORY;
+    count = Math.min(count + 1, HISTORY);
+  }
+
+  /**
+   * Sets {@link #offsetX} and {@link #offsetY} to the predicted movement from the newest sample
+   * over the given horizon.
+   *
+   * @return Whether a prediction could be made.
+   */
+  boolean predict(long horizonMillis) {
+    offsetX = 0f;
+    offsetY = 0f;
+
+    int newest = (next + HISTORY - 1) % HISTORY;
+    long newestTime = times[newest];
+
+    // Fit x(t) and y(t) with lines, relative to the newest sample's time.
+    int n = 0;
+    float meanT = 0f;
+    float meanX = 0f;
+    float meanY = 0f;
+    for (int i = 0; i < count; i++) {
+      int index = (newest - i + HISTORY) % HISTORY;
+      if (newestTime - times[index] > WINDOW_MILLIS) {
+        break;
+      }
+      meanT += times[index] - newestTime;
+      meanX += xs[index];
+      meanY += ys[index];
+      n++;
+    }
+    if (n < 2) {
+      return false;
+    }
+    meanT /= n;
+    meanX /= n;
+    meanY /= n;
+
+    float stt = 0f;
+    float stx = 0f;
+    float sty = 0f;
+    for (int i = 0; i < n; i++) {
+      int index = (newest - i + HISTORY) % HISTORY;
+      float dt = times[index] - newestTime - meanT;
+      stt += dt * dt;
+      stx += dt * (xs[index] - meanX);
+      sty += dt * (ys[index] - meanY);
+    }
+    if (stt == 0f) {
+      return false;
+    }
+
+    offsetX = stx / stt * horizonMillis;
+    offsetY = sty / stt * horizonMillis;
+
+    long pendingTime = newestTime + horizonMillis;
+    if (pendingCount > 0) {
+      // A shorter horizon may predict an earlier time. Keep the queue in time order.
+      int last = (pendingFirst + pendingCount - 1) % OUTSTANDING;
+      if (pendingTime < pendingTimes[last]) {
+        pendingCount = 0;
+      }
+    }
+    if (pendingCount == OUTSTANDING) {
+      pendingFirst = (pendingFirst + 1) % OUTSTANDING;
+      pendingCount--;
+    }
+    int slot = (pendingFirst + pendingCount) % OUTSTANDING;
+    pendingTimes[slot] = pendingTime;
+    pendingHorizons[slot] = horizonMillis;
+    pendingXs[slot] = xs[newest] + offsetX;
+    pendingYs[slot] = ys[newest] + offsetY;
+    pendingCount++;
+    if (statistics != null) {
+      statistics.onPrediction();
+    }
+    return true;
+  }
+
+  /**
+   * Compares the oldest outstanding prediction against the position interpolated between two
+   * samples, and removes it.
+   */
+  private void measure(long fromTime, float fromX, float fromY, long toTime, float toX, float toY) {
+    long pendingTime = pendingTimes[pendingFirst];
+    long pendingHorizon = pendingHorizons[pendingFirst];
+    float pendingX = pendingXs[pendingFirst];
+    float pendingY = pendingYs[pendingFirst];
+    pendingFirst = (pendingFirst + 1) % OUTSTANDING;
+    pendingCount--;
+    if (statistics == null) {
+      return;
+    }
+    float fraction = (float) (pendingTime - fromTime) / (toTime - fromTime);
+    fraction = Math.max(0f, Math.min(1f, fraction));
+    float actualX = fromX + (toX - fromX) * fraction;
+    float actualY = fromY + (toY - fromY) * fraction;
+    float dx = actualX - pendingX;
+    float dy = actualY - pendingY;
+    statistics.onMeasured((float) Math.sqrt(dx * dx + dy * dy), pendingHorizon);
+  }
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+/**
+ * The transform math of a directly manipulated target, in plain Java with primitive float state.
+ * <p>
+ * The core tracks the target's translation, scale, rotation, and pivot. Gestures set them relative
+ * to where each gesture began, and the changes made while a touch event is dispatched are
+ * accumulated so that each property is written at most once per event. Pivot requests are
+ * resolved with {@link PivotCompensation} when the transform is committed.
+ * <p>
+ * It has no Android dependencies, so that it can be tested, benchmarked, and fuzzed on a plain
+ * JVM. {@link DirectManipulator} adapts it to a {@link android.view.View}.
+ */
+final class TransformCore {
+
+  static final int TRANSLATION = 1;
+  static final int SCALE = 1 << 1;
+  static final int ROTATION = 1 << 2;
+  static final int PIVOT = 1 << 3;
+  static final int ALL = TRANSLATION | SCALE | ROTATION | PIVOT;
+
+  /**
+   * No pivot change was requested.
+   */
+  static final int PIVOT_NONE = 0;
+  /**
+   * The pivot should be moved to the gesture's centroid.
+   */
+  static final int PIVOT_CENTROID = 1;
+  /**
+   * The pivot should be moved back to the center of the target.
+   */
+  static final int PIVOT_RESET = 2;
+
+  /* Temporary variables. */
+  private final float[] array = new float[2];
+
+  /* The pending transform. */
+  float translationX;
+  float translationY;
+  float scaleX;
+  float scaleY;
+  float rotation;
+  float pivotX;
+  float pivotY;
+
+  int pivotRequest;
+  float centroidX;
+  float centroidY;
+
+  private int dirty;
+
+  /* The transform that the target has. */
+  private float committedTranslationX;
+  private float committedTranslationY;
+  private float committedScaleX;
+  private float committedScaleY;
+  private float committedRotation;
+  private float committedPivotX;
+  private float committedPivotY;
+
+  /* Where the current gestures began. */
+  private float initialTranslationX;
+  private float initialTranslationY;
+  private float initialScaleX;
+  private float initialScaleY;
+  private float initialRotation;
+
+  /**
+   * Discards any pending changes and starts over from the target's current transform.
+   *
+   * @param rotation The target's rotation in degrees.
+   */
+  void read(
+    float translationX,
+    float translationY,
+    float scaleX,
+    float scaleY,
+    float rotation,
+    float pivotX,
+    float pivotY) {
+    this.translationX = committedTranslationX = translationX;
+    this.translationY = committedTranslationY = translationY;
+    this.scaleX = committedScaleX = scaleX;
+    this.scaleY = committedScaleY = scaleY;
+    this.rotation = committedRotation = rotation;
+    this.pivotX = committedPivotX = pivotX;
+    this.pivotY = committedPivotY = pivotY;
+
+    pivotRequest = PIVOT_NONE;
+    dirty = 0;
+  }
+
+  void beginDrag() {
+    initialTranslationX = translationX;
+    initialTranslationY = translationY;
+  }
+
+  /**
+   * Translates the target by the given distance from where the drag began.
+   */
+  void drag(float translationX, float translationY) {
+    setTranslation(initialTranslationX + translationX, initialTranslationY + translationY);
+  }
+
+  void beginScale() {
+    initialScaleX = scaleX;
+    initialScaleY = scaleY;
+  }
+
+  /**
+   * Scales the target by the given factor from where the pinch began.
+   */
+  void scale(float scale) {
+    setScale(initialScaleX * scale, initialScaleY * scale);
+  }
+
+  void beginRotation() {
+    initialRotation = rotation;
+  }
+
+  /**
+   * Rotates the target by the given angle, in radians, from where the rotation began.
+   */
+  void rotate(float radians) {
+    setRotation((float) (initialRotation + radians * (180 / Math.PI)));
+  }
+
+  void setTranslation(float translationX, float translationY) {
+    this.translationX = translationX;
+    this.translationY = translationY;
+    dirty |= TRANSLATION;
+  }
+
+  void setScale(float scaleX, float scaleY) {
+    this.scaleX = scaleX;
+    this.scaleY = scaleY;
+    dirty |= SCALE;
+  }
+
+  void setRotation(float rotation) {
+    this.rotation = rotation;
+    dirty |= ROTATION;
+  }
+
+  void setPivot(float pivotX, float pivotY) {
+    this.pivotX = pivotX;
+    this.pivotY = pivotY;
+    dirty |= PIVOT;
+  }
+
+  /**
+   * Requests that the pivot be moved to the given centroid once the event has been dispatched.
+   * The latest request wins.
+   */
+  void requestPivotToCentroid(float centroidX, float centroidY) {
+    pivotRequest = PIVOT_CENTROID;
+    this.centroidX = centroidX;
+    this.centroidY = centroidY;
+  }
+
+  /**
+   * Requests that the pivot be moved back to the center of the target once the event has been
+   * dispatched. The latest request wins.
+   */
+  void requestResetPivot() {
+    pivotRequest = PIVOT_RESET;
+  }
+
+  boolean isDirty() {
+    return dirty != 0 || pivotRequest != PIVOT_NONE;
+  }
+
+  /**
+   * Resolves the pending pivot request, and marks every changed property as committed. The pivot
+   * is compensated once no matter how many gestures asked for it.
+   *
+   * @param width The target's width, used to reset the pivot.
+   * @param height The target's height, used to reset the pivot.
+   * @return The properties that have changed and must be written to the target.
+   */
+  int commit(float width, float height) {
+    switch (pivotRequest) {
+      case PIVOT_CENTROID:
+        setPivotToCentroid(centroidX, centroidY);
+        break;
+      case PIVOT_RESET:
+        resetPivot(width / 2f, height / 2f);
+        break;
+    }
+    pivotRequest = PIVOT_NONE;
+
+    committedTranslationX = translationX;
+    committedTranslationY = translationY;
+    committedScaleX = scaleX;
+    committedScaleY = scaleY;
+    committedRotation = rotation;
+    committedPivotX = pivotX;
+    committedPivotY = pivotY;
+
+    int changed = dirty;
+    dirty = 0;
+    return changed;
+  }
+
+  /**
+   * Moves the pivot back to the center of the target while keeping the target in place.
+   */
+  private void resetPivot(float centerX, float centerY) {
+    PivotCompensation.getTranslationAdjustment(
+      pivotX, pivotY, centerX, centerY, scaleX, scaleY, rotation, array);
+
+    setPivot(centerX, centerY);
+    adjustTranslation(array[0], array[1]);
+  }
+
+  /**
+   * Moves the pivot to the gesture's centroid and ensures that the pivot is over the untransformed
+   * centroid.
+   * <p>
+   * The centroid was calculated from the untransformed centroid using the transform that the
+   * target currently has, so that transform is the one compensated for. Any pending translation is
+   * then replaced, so that the pivot stays under the untransformed centroid.
+   */
+  private void setPivotToCentroid(float centroidX, float centroidY) {
+    PivotCompensation.getTranslationAdjustment(
+      committedPivotX,
+      committedPivotY,
+      centroidX,
+      centroidY,
+      committedScaleX,
+      committedScaleY,
+      committedRotation,
+      array);
+
+    setPivot(centroidX, centroidY);
+    adjustTranslation(
+      array[0] + committedTranslationX - translationX,
+      array[1] + committedTranslationY - translationY);
+  }
+
+  private void adjustTranslation(float adjustX, float adjustY) {
+    initialTranslationX += adjustX;
+    initialTranslationY += adjustY;
+    setTranslation(translationX + adjustX, translationY + adjustY);
+  }
+}
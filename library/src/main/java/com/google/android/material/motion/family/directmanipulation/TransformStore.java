@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.util.SparseIntArray;
+import android.view.View;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the transforms of views that are no longer bound, keyed by an integer such as an adapter
+ * position.
+ * <p>
+ * Transforms are packed into one float array. Identity transforms are not stored, and the rows of
+ * removed transforms are reused, so the store only grows with the number of transformed items.
+ */
+final class TransformStore {
+
+  private static final int TRANSLATION_X = 0;
+  private static final int TRANSLATION_Y = 1;
+  private static final int SCALE_X = 2;
+  private static final int SCALE_Y = 3;
+  private static final int ROTATION = 4;
+  private static final int PIVOT_X = 5;
+  private static final int PIVOT_Y = 6;
+  private static final int STRIDE = 7;
+
+  private final SparseIntArray rows = new SparseIntArray();
+  private float[] values = new float[8 * STRIDE];
+  private int[] freeRows = new int[8];
+  private int freeCount;
+  private int rowCount;
+
+  /**
+   * Stores the view's transform for the given key, or removes it if the view is untransformed.
+   */
+  void save(int key, View view) {
+    if (isIdentity(view)) {
+      remove(key);
+      return;
+    }
+
+    int row = rows.get(key, -1);
+    if (row == -1) {
+      row = allocateRow();
+      rows.put(key, row);
+    }
+
+    int offset = row * STRIDE;
+    values[offset + TRANSLATION_X] = view.getTranslationX();
+    values[offset + TRANSLATION_Y] = view.getTranslationY();
+    values[offset + SCALE_X] = view.getScaleX();
+    values[offset + SCALE_Y] = view.getScaleY();
+    values[offset + ROTATION] = view.getRotation();
+    values[offset + PIVOT_X] = view.getPivotX();
+    values[offset + PIVOT_Y] = view.getPivotY();
+  }
+
+  /**
+   * Writes the stored transform for the given key to the view, or resets the view to the identity
+   * transform if none is stored.
+   */
+  void restore(int key, View view) {
+    int row = rows.get(key, -1);
+    if (row == -1) {
+      view.setTranslationX(0f);
+      view.setTranslationY(0f);
+      view.setScaleX(1f);
+      view.setScaleY(1f);
+      view.setRotation(0f);
+      view.setPivotX(view.getWidth() / 2f);
+      view.setPivotY(view.getHeight() / 2f);
+      return;
+    }
+
+    int offset = row * STRIDE;
+    view.setTranslationX(values[offset + TRANSLATION_X]);
+    view.setTranslationY(values[offset + TRANSLATION_Y]);
+    view.setScaleX(values[offset + SCALE_X]);
+    view.setScaleY(values[offset + SCALE_Y]);
+    view.setRotation(values[offset + ROTATION]);
+    view.setPivotX(values[offset + PIVOT_X]);
+    view.setPivotY(values[offset + PIVOT_Y]);
+  }
+
+  void remove(int key) {
+    int index = rows.indexOfKey(key);
+    if (index >= 0) {
+      freeRow(rows.valueAt(index));
+      rows.removeAt(index);
+    }
+  }
+
+  void clear() {
+    rows.clear();
+    freeCount = 0;
+    rowCount = 0;
+  }
+
+  int size() {
+    return rows.size();
+  }
+
+  private int allocateRow() {
+    if (freeCount > 0) {
+      return freeRows[--freeCount];
+    }
+    int row = rowCount++;
+    if ((row + 1) * STRIDE > values.length) {
+      values = Arrays.copyOf(values, values.length * 2);
+    }
+    return row;
+  }
+
+  private void freeRow(int row) {
+    if (freeCount == freeRows.length) {
+      freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+    }
+    freeRows[freeCount++] = row;
+  }
+
+  private static boolean isIdentity(View view) {
+    return view.getTranslationX() == 0f
+      && view.getTranslationY() == 0f
+      && view.getScaleX() == 1f
+      && view.getScaleY() == 1f
+      && view.getRotation() == 0f;
+  }
+}
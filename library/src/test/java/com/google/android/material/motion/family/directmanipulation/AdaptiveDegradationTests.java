@@ -0,0 +1,113 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+/**
+ * Runs on a plain JVM, without Robolectric, because frame times are fed in by hand.
+ */
+public class AdaptiveDegradationTests {
+  private static final long FRAME = 16000000L;
+  private static final long LATE_FRAME = 40000000L;
+
+  private AdaptiveDegradation degradation;
+  private AdaptiveDegradation.Listener listener;
+  private long time;
+
+  @Before
+  public void setUp() {
+    degradation = new AdaptiveDegradation();
+    listener = mock(AdaptiveDegradation.Listener.class);
+    degradation.setListener(listener);
+    degradation.setFrameInterval(FRAME);
+    degradation.start();
+    time = 1;
+    degradation.onFrame(time);
+  }
+
+  @Test
+  public void staysAtFullTierWhileFramesAreOnTime() {
+    frames(100, FRAME);
+
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_FULL);
+    verifyZeroInteractions(listener);
+  }
+
+  @Test
+  public void stepsDownWhenFramesAreLate() {
+    frames(AdaptiveDegradation.WINDOW - AdaptiveDegradation.LATE_FRAMES_TO_STEP_DOWN, FRAME);
+    frames(AdaptiveDegradation.LATE_FRAMES_TO_STEP_DOWN, LATE_FRAME);
+
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_SKIP_EVENTS);
+    verify(listener).onTierChanged(degradation, AdaptiveDegradation.TIER_SKIP_EVENTS);
+  }
+
+  @Test
+  public void waitsForAFullWindowBeforeSteppingDownAgain() {
+    frames(AdaptiveDegradation.WINDOW, LATE_FRAME);
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_SKIP_EVENTS);
+
+    frames(AdaptiveDegradation.WINDOW - 1, LATE_FRAME);
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_SKIP_EVENTS);
+
+    frames(1, LATE_FRAME);
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_DEFER_PIVOT);
+  }
+
+  @Test
+  public void neverStepsBelowTheLastTier() {
+    frames(AdaptiveDegradation.WINDOW * 10, LATE_FRAME);
+
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_NO_ROTATION);
+  }
+
+  @Test
+  public void stepsBackUpWhenFramesRecover() {
+    frames(AdaptiveDegradation.WINDOW, LATE_FRAME);
+    frames(AdaptiveDegradation.FRAMES_TO_STEP_UP - 1, FRAME);
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_SKIP_EVENTS);
+
+    frames(1, FRAME);
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_FULL);
+    verify(listener).onTierChanged(degradation, AdaptiveDegradation.TIER_FULL);
+  }
+
+  @Test
+  public void timeBetweenGesturesIsNotMeasured() {
+    frames(AdaptiveDegradation.WINDOW, FRAME);
+
+    degradation.start();
+    time += 1000000000L;
+    degradation.onFrame(time);
+    frames(1, FRAME);
+
+    assertThat(degradation.getTier()).isEqualTo(AdaptiveDegradation.TIER_FULL);
+  }
+
+  private void frames(int count, long interval) {
+    for (int i = 0; i < count; i++) {
+      time += interval;
+      degradation.onFrame(time);
+    }
+  }
+}
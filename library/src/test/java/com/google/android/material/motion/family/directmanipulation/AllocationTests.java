@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.MotionRuntime;
+import com.google.android.material.motion.runtime.Plan;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assume.assumeTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Checks that steady-state gestures do not allocate per event.
+ * <p>
+ * Each plan's allocations per MOVE event are compared against a view without plans that receives
+ * the same events, so that allocations of the test harness itself are not counted.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class AllocationTests {
+  private static final int WARM_UP_EVENTS = 500;
+  private static final int MEASURED_EVENTS = 5000;
+  private static final int DISTINCT_EVENTS = 64;
+
+  private com.sun.management.ThreadMXBean threadMXBean;
+  private MotionRuntime runtime;
+  private Context context;
+  private View target;
+
+  @Before
+  public void setUp() {
+    ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threadMXBean = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+    threadMXBean.setThreadAllocatedMemoryEnabled(true);
+
+    runtime = new MotionRuntime();
+    context = Robolectric.setupActivity(Activity.class);
+    target = new View(context);
+    target.layout(0, 0, 50, 75);
+  }
+
+  @Test
+  public void draggableDoesNotAllocatePerEvent() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+
+    assertNoAllocationsPerEvent(plan, false);
+  }
+
+  @Test
+  public void pinchableDoesNotAllocatePerEvent() {
+    Pinchable plan = new Pinchable();
+    ((ScaleGestureRecognizer) plan.gestureRecognizer).scaleSlop = 0;
+
+    assertNoAllocationsPerEvent(plan, true);
+  }
+
+  @Test
+  public void rotatableDoesNotAllocatePerEvent() {
+    Rotatable plan = new Rotatable();
+    ((RotateGestureRecognizer) plan.gestureRecognizer).rotateSlop = 0;
+
+    assertNoAllocationsPerEvent(plan, true);
+  }
+
+  @Test
+  public void directlyManipulableDoesNotAllocatePerEvent() {
+    DirectlyManipulable plan = createDirectlyManipulable();
+
+    assertNoAllocationsPerEvent(plan, true);
+  }
+
+  @Test
+  public void lazyDirectlyManipulableDoesNotAllocatePerEvent() {
+    assertNoAllocationsPerEvent(new DirectlyManipulable(), true);
+  }
+
+  @Test
+  public void frameAlignedDirectlyManipulableDoesNotAllocatePerEvent() {
+    DirectlyManipulable plan = createDirectlyManipulable();
+    plan.setFrameAligned(true);
+
+    assertNoAllocationsPerEvent(plan, true);
+  }
+
+  private static DirectlyManipulable createDirectlyManipulable() {
+    DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+    dragGestureRecognizer.dragSlop = 0;
+    ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+    scaleGestureRecognizer.scaleSlop = 0;
+    RotateGestureRecognizer rotateGestureRecognizer = new RotateGestureRecognizer();
+    rotateGestureRecognizer.rotateSlop = 0;
+    return new DirectlyManipulable(
+      dragGestureRecognizer, scaleGestureRecognizer, rotateGestureRecognizer);
+  }
+
+  private void assertNoAllocationsPerEvent(Plan<View> plan, boolean twoFingers) {
+    MotionEvent[] moves = createMoves(twoFingers);
+
+    View baseline = new View(context);
+    baseline.layout(0, 0, 50, 75);
+    baseline.setOnTouchListener(new View.OnTouchListener() {
+      @Override
+      public boolean onTouch(View v, MotionEvent event) {
+        return true;
+      }
+    });
+    long baselineBytes = measureBytesPerEvent(baseline, moves, twoFingers);
+
+    runtime.addPlan(plan, target);
+    long planBytes = measureBytesPerEvent(target, moves, twoFingers);
+
+    assertThat(planBytes).isAtMost(baselineBytes);
+  }
+
+  private long measureBytesPerEvent(View view, MotionEvent[] moves, boolean twoFingers) {
+    view.dispatchTouchEvent(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0));
+    if (twoFingers) {
+      view.dispatchTouchEvent(createEvent(
+        MotionEvent.ACTION_POINTER_DOWN | (1 << MotionEvent.ACTION_POINTER_INDEX_SHIFT), 0, true));
+    }
+
+    for (int i = 0; i < WARM_UP_EVENTS; i++) {
+      view.dispatchTouchEvent(moves[i % DISTINCT_EVENTS]);
+    }
+
+    long threadId = Thread.currentThread().getId();
+    long before = threadMXBean.getThreadAllocatedBytes(threadId);
+    for (int i = 0; i < MEASURED_EVENTS; i++) {
+      view.dispatchTouchEvent(moves[i % DISTINCT_EVENTS]);
+    }
+    long after = threadMXBean.getThreadAllocatedBytes(threadId);
+
+    return (after - before) / MEASURED_EVENTS;
+  }
+
+  private MotionEvent[] createMoves(boolean twoFingers) {
+    MotionEvent[] moves = new MotionEvent[DISTINCT_EVENTS];
+    for (int i = 0; i < DISTINCT_EVENTS; i++) {
+      moves[i] = createEvent(MotionEvent.ACTION_MOVE, i, twoFingers);
+    }
+    return moves;
+  }
+
+  /**
+   * Creates an event whose fingers spread and turn a little more with each step.
+   */
+  private static MotionEvent createEvent(int action, int step, boolean twoFingers) {
+    float offset = (step % 2 == 0 ? 1 : -1) * (10 + step);
+    MotionEvent event = MotionEvent.obtain(0, step * 8, action, offset, 0, 0);
+    if (twoFingers) {
+      shadowOf(event).setPointer2(-offset, step);
+    }
+    return event;
+  }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.google.android.material.motion.runtime.MotionRuntime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DirectlyManipulableChildrenTests {
+  private static final float E = 0.0001f;
+
+  private MotionRuntime runtime;
+  private FrameLayout parent;
+  private View first;
+  private View second;
+  private View overlapping;
+  private DirectlyManipulableChildren plan;
+
+  private TouchEvents touchEvents;
+
+  @Before
+  public void setUp() {
+    runtime = new MotionRuntime();
+    Context context = Robolectric.setupActivity(Activity.class);
+    parent = new FrameLayout(context);
+    first = addChild(context, 0, 0, 100, 100);
+    second = addChild(context, 300, 300, 400, 400);
+    // Overlaps the bottom right corner of the first child, and is drawn above it.
+    overlapping = addChild(context, 50, 50, 150, 150);
+    parent.layout(0, 0, 500, 500);
+
+    plan = new DirectlyManipulableChildren();
+    plan.dragGestureRecognizer.dragSlop = 0;
+    runtime.addPlan(plan, parent);
+
+    touchEvents = new TouchEvents();
+  }
+
+  @Test
+  public void dragsTouchedChildOnly() {
+    drag(350, 350, 50, 20);
+
+    assertThat(second.getTranslationX()).isWithin(E).of(50);
+    assertThat(second.getTranslationY()).isWithin(E).of(20);
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+    assertThat(overlapping.getTranslationX()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void dragsTopmostChild() {
+    drag(75, 75, 10, 10);
+
+    assertThat(overlapping.getTranslationX()).isWithin(E).of(10);
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void ignoresTouchesOutsideOfChildren() {
+    boolean handled = parent.dispatchTouchEvent(
+      touchEvents.create(MotionEvent.ACTION_DOWN, 250, 250));
+
+    assertThat(handled).isFalse();
+    assertThat(plan.dragGestureRecognizer.getElement()).isNull();
+  }
+
+  @Test
+  public void findsChildrenThroughTheIndex() {
+    DirectlyManipulableChildren.DirectlyManipulableChildrenPerformer performer =
+      new DirectlyManipulableChildren.DirectlyManipulableChildrenPerformer();
+    performer.initialize(parent);
+    performer.addPlan(new DirectlyManipulableChildren());
+
+    assertThat(performer.hitTest(parent, 10, 10)).isEqualTo(0);
+    assertThat(performer.hitTest(parent, 399, 399)).isEqualTo(1);
+    assertThat(performer.hitTest(parent, 120, 120)).isEqualTo(2);
+    assertThat(performer.hitTest(parent, 200, 200)).isEqualTo(-1);
+  }
+
+  @Test
+  public void findsInvalidatedChildrenWhereTheyMoved() {
+    DirectlyManipulableChildren.DirectlyManipulableChildrenPerformer performer =
+      new DirectlyManipulableChildren.DirectlyManipulableChildrenPerformer();
+    performer.initialize(parent);
+    DirectlyManipulableChildren children = new DirectlyManipulableChildren();
+    performer.addPlan(children);
+    assertThat(performer.hitTest(parent, 250, 250)).isEqualTo(-1);
+
+    second.setTranslationX(-100);
+    second.setTranslationY(-100);
+    children.invalidateChild(second);
+
+    assertThat(performer.hitTest(parent, 250, 250)).isEqualTo(1);
+    assertThat(performer.hitTest(parent, 399, 399)).isEqualTo(-1);
+  }
+
+  @Test
+  public void dragsChildMovedProgrammaticallyOverAnother() {
+    // Index the children.
+    parent.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_DOWN, 10, 10));
+    parent.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_UP, 10, 10));
+
+    // Cover the first child, which is drawn below the second one.
+    second.setTranslationX(-300);
+    second.setTranslationY(-300);
+    plan.invalidateChild(second);
+
+    drag(10, 10, 5, 5);
+
+    assertThat(second.getTranslationX()).isWithin(E).of(-295);
+    assertThat(second.getTranslationY()).isWithin(E).of(-295);
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void dragsChildMovedByGestureOverAnother() {
+    drag(350, 350, -300, -300);
+
+    drag(10, 10, 5, 5);
+
+    assertThat(second.getTranslationX()).isWithin(E).of(-295);
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void routesEachPointerToTheChildItWentDownOn() {
+    DirectlyManipulableChildren routedPlan = new DirectlyManipulableChildren();
+    routedPlan.dragGestureRecognizer.dragSlop = 0;
+    routedPlan.setPointerRouting(true);
+    FrameLayout table = new FrameLayout(parent.getContext());
+    View left = addChild(table, 0, 0, 100, 100);
+    View right = addChild(table, 300, 300, 400, 400);
+    table.layout(0, 0, 500, 500);
+    runtime.addPlan(routedPlan, table);
+
+    // One finger on each child.
+    table.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_DOWN, 50, 50));
+    table.dispatchTouchEvent(
+      touchEvents.createMultiTouch(MotionEvent.ACTION_POINTER_DOWN, 1, 50, 50, 350, 350));
+    table.dispatchTouchEvent(
+      touchEvents.createMultiTouch(MotionEvent.ACTION_MOVE, 0, 80, 60, 400, 380));
+    table.dispatchTouchEvent(
+      touchEvents.createMultiTouch(MotionEvent.ACTION_POINTER_UP, 1, 80, 60, 400, 380));
+    table.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_UP, 80, 60));
+
+    assertThat(left.getTranslationX()).isWithin(E).of(30);
+    assertThat(left.getTranslationY()).isWithin(E).of(10);
+    assertThat(right.getTranslationX()).isWithin(E).of(50);
+    assertThat(right.getTranslationY()).isWithin(E).of(30);
+    // Each child only saw one pointer, so neither was pinched.
+    assertThat(left.getScaleX()).isWithin(E).of(1);
+    assertThat(right.getScaleX()).isWithin(E).of(1);
+  }
+
+  private View addChild(Context context, int left, int top, int right, int bottom) {
+    View child = new View(context);
+    parent.addView(child, new FrameLayout.LayoutParams(right - left, bottom - top));
+    child.layout(left, top, right, bottom);
+    return child;
+  }
+
+  private static View addChild(FrameLayout table, int left, int top, int right, int bottom) {
+    View child = new View(table.getContext());
+    table.addView(child, new FrameLayout.LayoutParams(right - left, bottom - top));
+    child.layout(left, top, right, bottom);
+    return child;
+  }
+
+  private void drag(float x, float y, float dx, float dy) {
+    parent.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_DOWN, x, y));
+    parent.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_MOVE, x + dx, y + dy));
+    parent.dispatchTouchEvent(touchEvents.create(MotionEvent.ACTION_UP, x + dx, y + dy));
+  }
+}
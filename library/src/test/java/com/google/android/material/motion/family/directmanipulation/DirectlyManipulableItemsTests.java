@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.view.MotionEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import com.google.android.material.motion.runtime.MotionRuntime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DirectlyManipulableItemsTests {
+  private static final float E = 0.0001f;
+
+  private FrameLayout list;
+  private View first;
+  private View second;
+  private DirectlyManipulableItems plan;
+
+  private long eventTime;
+
+  @Before
+  public void setUp() {
+    MotionRuntime runtime = new MotionRuntime();
+    Context context = Robolectric.setupActivity(Activity.class);
+    list = new FrameLayout(context);
+    first = addItem(context, 0, 0, 100, 100);
+    second = addItem(context, 0, 100, 100, 200);
+    list.layout(0, 0, 100, 500);
+
+    plan = new DirectlyManipulableItems();
+    runtime.addPlan(plan, list);
+
+    eventTime = -16;
+  }
+
+  @Test
+  public void dragsBoundItem() {
+    plan.bind(first, 0);
+    drag(first, 100, 50);
+
+    assertThat(first.getTranslationX()).isGreaterThan(0f);
+    assertThat(first.getTranslationY()).isGreaterThan(0f);
+    assertThat(second.getTranslationX()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void ignoresUnboundItem() {
+    plan.bind(first, 0);
+    plan.unbind(first);
+    drag(first, 100, 50);
+
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+    assertThat(plan.getPoolSize()).isEqualTo(0);
+  }
+
+  @Test
+  public void restoresTransformOfRecycledPosition() {
+    plan.bind(first, 3);
+    drag(first, 100, 50);
+    float translationX = first.getTranslationX();
+    float translationY = first.getTranslationY();
+
+    // The view is recycled for another position, which has never been manipulated.
+    plan.unbind(first);
+    plan.bind(first, 7);
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+    assertThat(first.getTranslationY()).isWithin(E).of(0);
+
+    // A different view is bound to the manipulated position.
+    plan.unbind(first);
+    plan.bind(second, 3);
+    assertThat(second.getTranslationX()).isWithin(E).of(translationX);
+    assertThat(second.getTranslationY()).isWithin(E).of(translationY);
+    assertThat(plan.getStoredTransformCount()).isEqualTo(1);
+  }
+
+  @Test
+  public void reusesPooledManipulatorAcrossItems() {
+    plan.bindAll(new View[] {first, second}, new int[] {0, 1}, 2);
+    drag(first, 100, 0);
+    drag(second, 100, 0);
+    drag(first, 0, 100);
+
+    assertThat(plan.getPoolSize()).isEqualTo(1);
+    assertThat(second.getTranslationX()).isGreaterThan(0f);
+  }
+
+  @Test
+  public void clearsStoredTransforms() {
+    plan.bind(first, 0);
+    drag(first, 100, 50);
+    plan.unbindAll();
+    plan.clearTransforms();
+
+    plan.bind(first, 0);
+    assertThat(first.getTranslationX()).isWithin(E).of(0);
+    assertThat(plan.getStoredTransformCount()).isEqualTo(0);
+  }
+
+  private View addItem(Context context, int left, int top, int right, int bottom) {
+    View item = new View(context);
+    list.addView(item, new FrameLayout.LayoutParams(right - left, bottom - top));
+    item.layout(left, top, right, bottom);
+    return item;
+  }
+
+  private void drag(View item, float dx, float dy) {
+    item.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 50, 50));
+    for (int i = 1; i <= 4; i++) {
+      item.dispatchTouchEvent(
+        createMotionEvent(MotionEvent.ACTION_MOVE, 50 + dx * i / 4, 50 + dy * i / 4));
+    }
+    item.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 50 + dx, 50 + dy));
+  }
+
+  private MotionEvent createMotionEvent(int action, float x, float y) {
+    return MotionEvent.obtain(0, eventTime += 16, action, x, y, 0);
+  }
+}
@@ -17,6 +17,7 @@ package com.google.android.material.motion.family.directmanipulation;
 
 import android.app.Activity;
 import android.content.Context;
+import android.view.MotionEvent;
 import android.view.View;
 
 import com.google.android.material.motion.gestures.DragGestureRecognizer;
@@ -30,6 +31,7 @@ import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
 import static com.google.common.truth.Truth.assertThat;
 
@@ -39,27 +41,54 @@ public class DirectlyManipulableTests {
 
   private MotionRuntime runtime;
   private View target;
+  private TouchEvents events;
 
   @Before
   public void setUp() {
     runtime = new MotionRuntime();
     Context context = Robolectric.setupActivity(Activity.class);
     target = new View(context);
+    target.layout(0, 0, 50, 75);
+    events = new TouchEvents();
   }
 
   @Test
-  public void attachesNewGestureRecognizersToElement() {
+  public void createsNewGestureRecognizersOnFirstTouchDown() {
     DirectlyManipulable plan = new DirectlyManipulable();
 
-    assertThat(plan.dragGestureRecognizer.getElement()).isNull();
-    assertThat(plan.scaleGestureRecognizer.getElement()).isNull();
-    assertThat(plan.rotateGestureRecognizer.getElement()).isNull();
+    assertThat(plan.dragGestureRecognizer).isNull();
+    assertThat(plan.scaleGestureRecognizer).isNull();
+    assertThat(plan.rotateGestureRecognizer).isNull();
 
     runtime.addPlan(plan, target);
 
-    assertThat(plan.dragGestureRecognizer.getElement()).isEqualTo(target);
-    assertThat(plan.scaleGestureRecognizer.getElement()).isEqualTo(target);
-    assertThat(plan.rotateGestureRecognizer.getElement()).isEqualTo(target);
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_MOVE, 50, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_MOVE, 100, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_UP, 100, 0));
+
+    assertThat(target.getTranslationX()).isGreaterThan(0f);
+  }
+
+  @Test
+  public void releasedGestureRecognizersAreCreatedAgain() {
+    DirectlyManipulable plan = new DirectlyManipulable();
+    plan.setRecognizerReleaseDelay(0);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_MOVE, 100, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_UP, 100, 0));
+    ShadowLooper.idleMainLooper(5000);
+    float translationX = target.getTranslationX();
+
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_DOWN, 100, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_MOVE, 200, 0));
+    target.dispatchTouchEvent(events.create(MotionEvent.ACTION_UP, 200, 0));
+
+    assertThat(translationX).isGreaterThan(0f);
+    assertThat(target.getTranslationX()).isGreaterThan(translationX);
   }
 
   @Test
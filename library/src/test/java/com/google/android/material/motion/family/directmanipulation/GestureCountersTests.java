@@ -0,0 +1,107 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class GestureCountersTests {
+
+  private GestureCounters counters;
+
+  @Before
+  public void setUp() {
+    counters = new GestureCounters();
+    counters.onEvent(true);
+    counters.onEvent(false);
+    counters.onStateChanged(GestureCounters.DRAG, GestureRecognizer.BEGAN);
+    counters.onStateChanged(GestureCounters.DRAG, GestureRecognizer.CHANGED);
+    counters.onStateChanged(GestureCounters.DRAG, GestureRecognizer.RECOGNIZED);
+    counters.onStateChanged(GestureCounters.ROTATE, GestureRecognizer.BEGAN);
+    counters.onStateChanged(GestureCounters.ROTATE, GestureRecognizer.CANCELLED);
+    counters.onPivotRecomputed();
+    counters.onTokenIssued();
+  }
+
+  @Test
+  public void countsEachKindSeparately() {
+    assertThat(counters.getEventsDispatched()).isEqualTo(2);
+    assertThat(counters.getEventsHandled()).isEqualTo(1);
+    assertThat(counters.getGesturesBegan(GestureCounters.DRAG)).isEqualTo(1);
+    assertThat(counters.getGesturesRecognized(GestureCounters.DRAG)).isEqualTo(1);
+    assertThat(counters.getGesturesCancelled(GestureCounters.DRAG)).isEqualTo(0);
+    assertThat(counters.getGesturesBegan(GestureCounters.SCALE)).isEqualTo(0);
+    assertThat(counters.getGesturesCancelled(GestureCounters.ROTATE)).isEqualTo(1);
+    assertThat(counters.getPivotRecomputations()).isEqualTo(1);
+    assertThat(counters.getTokensIssued()).isEqualTo(1);
+  }
+
+  @Test
+  public void snapshotIsIndependentOfLaterCounts() {
+    GestureCounters snapshot = new GestureCounters();
+    counters.copyInto(snapshot);
+
+    counters.onEvent(true);
+    counters.onStateChanged(GestureCounters.DRAG, GestureRecognizer.BEGAN);
+
+    assertThat(snapshot.getEventsDispatched()).isEqualTo(2);
+    assertThat(snapshot.getGesturesBegan(GestureCounters.DRAG)).isEqualTo(1);
+    assertThat(snapshot.getGesturesCancelled(GestureCounters.ROTATE)).isEqualTo(1);
+    assertThat(snapshot.getTokensIssued()).isEqualTo(1);
+  }
+
+  @Test
+  public void resetClearsEveryCounter() {
+    counters.reset();
+
+    assertThat(counters.getEventsDispatched()).isEqualTo(0);
+    assertThat(counters.getEventsHandled()).isEqualTo(0);
+    assertThat(counters.getGesturesBegan(GestureCounters.DRAG)).isEqualTo(0);
+    assertThat(counters.getGesturesCancelled(GestureCounters.ROTATE)).isEqualTo(0);
+    assertThat(counters.getPivotRecomputations()).isEqualTo(0);
+    assertThat(counters.getTokensIssued()).isEqualTo(0);
+  }
+
+  @Test
+  public void dumpPrintsEveryCounterWithThePrefix() {
+    StringWriter output = new StringWriter();
+    PrintWriter writer = new PrintWriter(output);
+
+    counters.dump("  ", writer);
+    writer.flush();
+
+    String[] lines = output.toString().split("\\r?\\n");
+    assertThat(lines).asList().containsExactly(
+      "  events: dispatched=2 handled=1",
+      "  drag: began=1 recognized=1 cancelled=0",
+      "  scale: began=0 recognized=0 cancelled=0",
+      "  rotate: began=1 recognized=0 cancelled=1",
+      "  pivotRecomputations=1",
+      "  tokensIssued=1").inOrder();
+  }
+}
@@ -17,10 +17,13 @@ package com.google.android.material.motion.family.directmanipulation;
 
 import android.app.Activity;
 import android.content.Context;
+import android.graphics.Matrix;
 import android.view.MotionEvent;
 import android.view.View;
 
+import com.google.android.material.motion.family.directmanipulation.GesturePerformer.FrameCommitListener;
 import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer;
 import com.google.android.material.motion.gestures.RotateGestureRecognizer;
 import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
 import com.google.android.material.motion.runtime.MotionRuntime;
@@ -32,11 +35,22 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.robolectric.Robolectric;
 import org.robolectric.RobolectricTestRunner;
+import org.robolectric.Shadows;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowMotionEvent;
 
 import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyFloat;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(constants = BuildConfig.class, sdk = 21)
@@ -46,8 +60,7 @@ public class GesturePerformerTests {
   private MotionRuntime runtime;
   private View target;
 
-  private long eventDownTime;
-  private long eventTime;
+  private TouchEvents events;
 
   @Before
   public void setUp() {
@@ -56,8 +69,7 @@ public class GesturePerformerTests {
     target = new View(context);
     target.layout(0, 0, 50, 75);
 
-    eventDownTime = 0;
-    eventTime = -16;
+    events = new TouchEvents();
   }
 
   @Test
@@ -216,55 +228,764 @@ public class GesturePerformerTests {
     assertThat(target.getTranslationY()).isWithin(E).of(10f);
   }
 
-  private MotionEvent createMotionEvent(int action, float x, float y) {
-    return MotionEvent.obtain(eventDownTime, eventTime += 16, action, x, y, 0);
+  @Test
+  public void writesEachChangedPropertyOncePerEvent() {
+    View target = spy(this.target);
+    Draggable draggable = new Draggable();
+    ((DragGestureRecognizer) draggable.gestureRecognizer).dragSlop = 0;
+    Pinchable pinchable = new Pinchable();
+    ((ScaleGestureRecognizer) pinchable.gestureRecognizer).scaleSlop = 0;
+    Rotatable rotatable = new Rotatable();
+    ((RotateGestureRecognizer) rotatable.gestureRecognizer).rotateSlop = 0;
+
+    runtime.addPlan(draggable, target);
+    runtime.addPlan(pinchable, target);
+    runtime.addPlan(rotatable, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, -10, 0, 10, 0));
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 1, -20, 0, 20, 0));
+
+    float translationX = target.getTranslationX();
+    float translationY = target.getTranslationY();
+    float pivotX = target.getPivotX();
+    float pivotY = target.getPivotY();
+
+    reset(target);
+    // Centroid = [0,0] -> [10,10], span = 40 -> 80, angle = 0 -> 90, in a single event.
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 1, 10, -30, 10, 50));
+
+    verify(target, times(1)).setTranslationX(anyFloat());
+    verify(target, times(1)).setTranslationY(anyFloat());
+    verify(target, times(1)).setScaleX(anyFloat());
+    verify(target, times(1)).setScaleY(anyFloat());
+    verify(target, times(1)).setRotation(anyFloat());
+    verify(target, times(1)).setPivotX(anyFloat());
+    verify(target, times(1)).setPivotY(anyFloat());
+
+    assertThat(target.getScaleX()).isWithin(E).of(4f);
+    assertThat(target.getScaleY()).isWithin(E).of(4f);
+    assertThat(target.getRotation()).isWithin(E).of(90f);
+    assertThat(Math.abs(target.getPivotX() - pivotX)).isGreaterThan(E);
+    assertThat(Math.abs(target.getPivotY() - pivotY)).isGreaterThan(E);
+    assertThat(Math.abs(target.getTranslationX() - translationX)).isGreaterThan(E);
+    assertThat(Math.abs(target.getTranslationY() - translationY)).isGreaterThan(E);
   }
 
-  private MotionEvent createMultiTouchMotionEvent(
-    int action, int index, float x0, float y0, float x1, float y1) {
-    MotionEvent event = mock(MotionEvent.class);
+  @Test
+  public void frameAlignedPerformerCoalescesEventsIntoOneCommit() {
+    FrameCommitListener listener = mock(FrameCommitListener.class);
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setFrameAligned(true);
+    plan.setFrameCommitListener(listener);
 
-    when(event.getDownTime()).thenReturn(eventDownTime);
-    when(event.getEventTime()).thenReturn(eventTime += 16);
+    runtime.addPlan(plan, target);
 
-    when(event.getPointerCount()).thenReturn(2);
-    when(event.getAction()).thenReturn(action | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
-    when(event.getActionMasked()).thenReturn(action);
-    when(event.getActionIndex()).thenReturn(index);
+    ShadowLooper.pauseMainLooper();
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 10, 20));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 100));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
 
-    when(event.getRawX()).thenReturn(x0);
-    when(event.getRawY()).thenReturn(y0);
+    // Nothing is written until the next frame.
+    assertThat(target.getTranslationX()).isWithin(E).of(0f);
+    assertThat(target.getTranslationY()).isWithin(E).of(0f);
 
-    when(event.getX(0)).thenReturn(x0);
-    when(event.getY(0)).thenReturn(y0);
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
 
-    when(event.getX(1)).thenReturn(x1);
-    when(event.getY(1)).thenReturn(y1);
+    assertThat(target.getTranslationX()).isWithin(E).of(100f);
+    assertThat(target.getTranslationY()).isWithin(E).of(200f);
+    verify(listener).onFrameCommitted(target, 4);
+  }
 
-    return event;
+  @Test
+  public void draggableWithMomentumKeepsMovingAfterRelease() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setMomentumEnabled(true);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 0));
+
+    ShadowLooper.idleMainLooper(5000);
+
+    assertThat(target.getTranslationX()).isGreaterThan(100f);
+    assertThat(target.getTranslationY()).isWithin(E).of(0f);
   }
 
-  private MotionEvent createMultiTouchMotionEvent(
-    int action, int index, float x0, float y0, float x1, float y1, float x2, float y2) {
-    MotionEvent event = mock(MotionEvent.class);
+  @Test
+  public void touchDownStopsMomentum() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setMomentumEnabled(true);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 100, 0));
+    float translationX = target.getTranslationX();
+
+    ShadowLooper.idleMainLooper(5000);
+
+    assertThat(target.getTranslationX()).isWithin(E).of(translationX);
+  }
+
+  @Test
+  public void transformListenerIsNotifiedUntilMomentumEnds() {
+    DirectManipulator manipulator = createManipulator(target);
+    manipulator.setMomentumEnabled(DirectManipulator.DRAG, true);
+    DirectManipulator.TransformListener listener = mock(DirectManipulator.TransformListener.class);
+    manipulator.setTransformListener(listener);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    verify(listener, atLeastOnce()).onTransformCommitted(manipulator);
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 0));
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 0));
+
+    ShadowLooper.idleMainLooper(5000);
+    assertThat(manipulator.isSettling()).isFalse();
+    verify(listener, atLeast(3)).onTransformCommitted(manipulator);
+
+    reset(listener);
+    ShadowLooper.idleMainLooper(5000);
+    verify(listener, never()).onTransformCommitted(manipulator);
+  }
+
+  @Test
+  public void hardwareLayerIsUsedOnlyDuringGesture() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setHardwareLayerEnabled(true);
+    target.setLayerType(View.LAYER_TYPE_SOFTWARE, null);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    assertThat(target.getLayerType()).isEqualTo(View.LAYER_TYPE_HARDWARE);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 50, 0));
+    assertThat(target.getLayerType()).isEqualTo(View.LAYER_TYPE_SOFTWARE);
+  }
+
+  @Test
+  public void layerTypeIsUntouchedByDefault() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    assertThat(target.getLayerType()).isEqualTo(View.LAYER_TYPE_NONE);
+  }
+
+  @Test
+  public void pipelinedDraggableMovesViewOnLaterFrame() {
+    Draggable plan = new Draggable();
+    plan.setPipelined(true);
+
+    runtime.addPlan(plan, target);
+
+    GesturePipeline.workerEnabled = false;
+    try {
+      ShadowLooper.pauseMainLooper();
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 200));
+      GesturePipeline.drain();
+      assertThat(target.getTranslationX()).isWithin(E).of(0f);
+
+      ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    } finally {
+      GesturePipeline.workerEnabled = true;
+    }
+
+    assertThat(target.getTranslationX()).isWithin(E).of(100f);
+    assertThat(target.getTranslationY()).isWithin(E).of(200f);
+  }
+
+  @Test
+  public void pipelineSolvesLazyPlanAddedBeforeIt() {
+    runtime.addPlan(new Draggable(null), target);
+    Pinchable plan = new Pinchable();
+    plan.setPipelined(true);
+    runtime.addPlan(plan, target);
+
+    GesturePipeline.workerEnabled = false;
+    try {
+      ShadowLooper.pauseMainLooper();
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 200));
+      GesturePipeline.drain();
+      ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    } finally {
+      GesturePipeline.workerEnabled = true;
+    }
+
+    assertThat(target.getTranslationX()).isWithin(E).of(100f);
+    assertThat(target.getTranslationY()).isWithin(E).of(200f);
+  }
+
+  @Test
+  public void pipelinedDraggableEndsAtLastPointerWhenMovesAreDropped() {
+    Draggable plan = new Draggable();
+    plan.setPipelined(true);
+
+    runtime.addPlan(plan, target);
+
+    GesturePipeline.workerEnabled = false;
+    try {
+      ShadowLooper.pauseMainLooper();
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+      // Fill the ring, so that the last move is dropped.
+      for (int i = 1; i < SampleRing.CAPACITY; i++) {
+        target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, i, i));
+      }
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 300, 400));
+      GesturePipeline.drain();
+
+      target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 300, 400));
+      GesturePipeline.drain();
+      ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    } finally {
+      GesturePipeline.workerEnabled = true;
+    }
+
+    assertThat(target.getTranslationX()).isWithin(E).of(300f);
+    assertThat(target.getTranslationY()).isWithin(E).of(400f);
+  }
+
+  @Test
+  public void predictedDragLeadsFingerAndEndsExact() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setPredictionHorizon(16);
+
+    runtime.addPlan(plan, target);
+
+    // Events are in the target's coordinates, so subtract the target's translation.
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    for (int x = 10; x <= 30; x += 10) {
+      target.dispatchTouchEvent(
+        createMotionEvent(MotionEvent.ACTION_MOVE, x - target.getTranslationX(), 0));
+    }
+    assertThat(target.getTranslationX()).isWithin(E).of(40f);
+    assertThat(plan.getPredictionStatistics().getPredictionCount()).isEqualTo(2);
+    assertThat(plan.getPredictionStatistics().getMeanError()).isWithin(E).of(0f);
+
+    target.dispatchTouchEvent(
+      createMotionEvent(MotionEvent.ACTION_UP, 30 - target.getTranslationX(), 0));
+    assertThat(target.getTranslationX()).isWithin(E).of(30f);
+  }
+
+  @Test
+  public void metricsRecordWrittenEventsAndRecognizerTime() {
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setMetricsEnabled(true);
+    GestureMetrics metrics = plan.getMetrics();
+    GestureMetrics.Listener listener = mock(GestureMetrics.Listener.class);
+    metrics.setListener(listener);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 10, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 10, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 10, 0));
+
+    assertThat(metrics.getDragRecognizerHistogram().getCount()).isEqualTo(4);
+    assertThat(metrics.getEventToWriteHistogram().getCount()).isAtLeast(2L);
+    assertThat(metrics.getScaleRecognizerHistogram().getCount()).isEqualTo(0);
+    verify(listener).onGesturesEnded(metrics);
+  }
+
+  @Test
+  public void metricsAreOffByDefault() {
+    assertThat(new Draggable().getMetrics()).isNull();
+  }
+
+  @Test
+  public void countersCountEventsGesturesPivotsAndTokens() {
+    DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+    dragGestureRecognizer.dragSlop = 0;
+    ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+    scaleGestureRecognizer.scaleSlop = 0;
+    DirectlyManipulable plan =
+      new DirectlyManipulable(dragGestureRecognizer, scaleGestureRecognizer, null);
+    GestureCounters counters = plan.getCounters();
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, -10, 0, 10, 0));
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 1, -20, 0, 20, 0));
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_UP, 1, -20, 0, 20, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, -20, 0));
+
+    assertCountsOfOnePinch(counters);
+  }
+
+  @Test
+  public void separatePlansShareTheFirstPlansCounters() {
+    Draggable draggable = new Draggable();
+    ((DragGestureRecognizer) draggable.gestureRecognizer).dragSlop = 0;
+    Pinchable pinchable = new Pinchable();
+    ((ScaleGestureRecognizer) pinchable.gestureRecognizer).scaleSlop = 0;
+    GestureCounters counters = draggable.getCounters();
+
+    runtime.addPlan(draggable, target);
+    runtime.addPlan(pinchable, target);
+
+    assertThat(pinchable.getCounters()).isSameAs(counters);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, -10, 0, 10, 0));
+    target.dispatchTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 1, -20, 0, 20, 0));
+    target.dispatchTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_UP, 1, -20, 0, 20, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, -20, 0));
+
+    assertCountsOfOnePinch(counters);
+  }
+
+  /**
+   * Asserts the counts of a drag that is pinched once: down, pointer down, move, pointer up, up.
+   */
+  private static void assertCountsOfOnePinch(GestureCounters counters) {
+    assertThat(counters.getEventsDispatched()).isEqualTo(5L);
+    assertThat(counters.getEventsHandled()).isEqualTo(5L);
+    assertThat(counters.getGesturesBegan(GestureCounters.DRAG)).isEqualTo(1L);
+    assertThat(counters.getGesturesRecognized(GestureCounters.DRAG)).isEqualTo(1L);
+    assertThat(counters.getGesturesCancelled(GestureCounters.DRAG)).isEqualTo(0L);
+    assertThat(counters.getGesturesBegan(GestureCounters.SCALE)).isEqualTo(1L);
+    assertThat(
+      counters.getGesturesRecognized(GestureCounters.SCALE)
+        + counters.getGesturesCancelled(GestureCounters.SCALE)).isEqualTo(1L);
+    assertThat(counters.getGesturesBegan(GestureCounters.ROTATE)).isEqualTo(0L);
+    // The pivot follows the centroid on the move, and is reset when the pinch ends.
+    assertThat(counters.getPivotRecomputations()).isEqualTo(2L);
+    assertThat(counters.getTokensIssued()).isEqualTo(1L);
+  }
+
+  @Test
+  public void targetMatrixReceivesDragInsteadOfView() {
+    Matrix matrix = new Matrix();
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setTargetMatrix(matrix);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 100));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 200));
+
+    float[] values = new float[9];
+    matrix.getValues(values);
+    assertThat(values[Matrix.MTRANS_X]).isWithin(E).of(100);
+    assertThat(values[Matrix.MTRANS_Y]).isWithin(E).of(200);
+    assertThat(target.getTranslationX()).isWithin(E).of(0);
+    assertThat(target.getTranslationY()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void targetMatrixReceivesPinchInsteadOfView() {
+    Matrix matrix = new Matrix();
+    Pinchable plan = new Pinchable();
+    ((ScaleGestureRecognizer) plan.gestureRecognizer).scaleSlop = 0;
+    plan.setTargetMatrix(matrix);
+
+    runtime.addPlan(plan, target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    // Span = 100.
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, 0, 0, 100, 0));
+    // Span = 200.
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 1, 0, 0, 200, 0));
+    target.dispatchTouchEvent(createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_UP, 1, 0, 0, 200, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 0, 0));
+
+    float[] values = new float[9];
+    matrix.getValues(values);
+    assertThat(values[Matrix.MSCALE_X]).isWithin(E).of(2f);
+    assertThat(values[Matrix.MSCALE_Y]).isWithin(E).of(2f);
+    assertThat(target.getScaleX()).isWithin(E).of(1f);
+    assertThat(target.getPivotX()).isWithin(E).of(25f);
+  }
+
+  @Test
+  public void sharedTransformPublishesDrag() {
+    SharedTransform transform = new SharedTransform();
+    Draggable plan = new Draggable();
+    ((DragGestureRecognizer) plan.gestureRecognizer).dragSlop = 0;
+    plan.setSharedTransform(transform);
+
+    runtime.addPlan(plan, target);
+
+    int before = transform.getVersion();
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 200));
+
+    float[] values = new float[SharedTransform.SIZE];
+    assertThat(transform.read(values)).isNotEqualTo(before);
+    assertThat(values[Matrix.MTRANS_X]).isWithin(E).of(100);
+    assertThat(values[Matrix.MTRANS_Y]).isWithin(E).of(200);
+    assertThat(target.getTranslationX()).isWithin(E).of(0);
+  }
+
+  @Test
+  public void singleFingerMovesSkipIdlePinchAndRotation() {
+    ScaleGestureRecognizer scaleGestureRecognizer = spy(new ScaleGestureRecognizer());
+    RotateGestureRecognizer rotateGestureRecognizer = spy(new RotateGestureRecognizer());
+    DragGestureRecognizer dragGestureRecognizer = spy(new DragGestureRecognizer());
+
+    runtime.addPlan(
+      new DirectlyManipulable(
+        dragGestureRecognizer, scaleGestureRecognizer, rotateGestureRecognizer),
+      target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 0));
+
+    verify(dragGestureRecognizer, times(4)).onTouchEvent(any(MotionEvent.class));
+    verify(scaleGestureRecognizer, times(2)).onTouchEvent(any(MotionEvent.class));
+    verify(rotateGestureRecognizer, times(2)).onTouchEvent(any(MotionEvent.class));
+  }
+
+  @Test
+  public void routingKeepsTheSameTransform() {
+    View routed = new View(target.getContext());
+    routed.layout(0, 0, 50, 75);
+    View broadcast = new View(target.getContext());
+    broadcast.layout(0, 0, 50, 75);
+    DirectManipulator routedManipulator = createManipulator(routed);
+    DirectManipulator broadcastManipulator = createManipulator(broadcast);
+    broadcastManipulator.setRoutingEnabled(false);
+
+    MotionEvent[] events = {
+      createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0),
+      createMotionEvent(MotionEvent.ACTION_MOVE, 20, 10),
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, 20, 10, 120, 10),
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 1, 20, 10, 220, 110),
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_UP, 1, 20, 10, 220, 110),
+      createMotionEvent(MotionEvent.ACTION_MOVE, 40, 30),
+      createMotionEvent(MotionEvent.ACTION_UP, 40, 30),
+    };
+    for (MotionEvent event : events) {
+      routedManipulator.onTouchEvent(event);
+      broadcastManipulator.onTouchEvent(event);
+    }
+
+    assertThat(routed.getTranslationX()).isWithin(E).of(broadcast.getTranslationX());
+    assertThat(routed.getTranslationY()).isWithin(E).of(broadcast.getTranslationY());
+    assertThat(routed.getScaleX()).isWithin(E).of(broadcast.getScaleX());
+    assertThat(routed.getRotation()).isWithin(E).of(broadcast.getRotation());
+    assertThat(routed.getPivotX()).isWithin(E).of(broadcast.getPivotX());
+  }
+
+  @Test
+  public void lazyGestureRecognizersAreCreatedOnFirstTouchDown() {
+    DirectManipulator manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setLazyGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.setLazyGestureRecognizer(DirectManipulator.SCALE);
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG)).isNull();
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    GestureRecognizer dragGestureRecognizer =
+      manipulator.getGestureRecognizer(DirectManipulator.DRAG);
+
+    assertThat(dragGestureRecognizer).isInstanceOf(DragGestureRecognizer.class);
+    assertThat(dragGestureRecognizer.getElement()).isEqualTo(target);
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.SCALE))
+      .isInstanceOf(ScaleGestureRecognizer.class);
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.ROTATE)).isNull();
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 0, 0));
+    ShadowLooper.idleMainLooper(5000);
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG))
+      .isSameAs(dragGestureRecognizer);
+  }
+
+  @Test
+  public void lazyGestureRecognizersAreReleasedAfterTheDelay() {
+    DirectManipulator manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setLazyGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.setRecognizerReleaseDelay(100);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    GestureRecognizer dragGestureRecognizer =
+      manipulator.getGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 0, 0));
+    ShadowLooper.idleMainLooper(50);
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG))
+      .isSameAs(dragGestureRecognizer);
+
+    ShadowLooper.idleMainLooper(100);
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG)).isNull();
+    assertThat(manipulator.isEnabled(DirectManipulator.DRAG)).isFalse();
+    assertThat(dragGestureRecognizer.getElement()).isNull();
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG)).isNotNull();
+    assertThat(manipulator.isEnabled(DirectManipulator.DRAG)).isTrue();
+  }
+
+  @Test
+  public void lazyPlanCanBeRemovedBeforeFirstTouchDown() {
+    runtime.addNamedPlan(new Draggable(null), "draggable", target);
+    runtime.removeNamedPlan("draggable", target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 200));
+
+    assertThat(target.getTranslationX()).isWithin(E).of(0f);
+    assertThat(target.getTranslationY()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void lazyPlanCanBeRemovedAfterTheRelease() {
+    Draggable plan = new Draggable(null);
+    plan.setRecognizerReleaseDelay(100);
+    runtime.addNamedPlan(plan, "draggable", target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 0, 0));
+    ShadowLooper.idleMainLooper(5000);
+    runtime.removeNamedPlan("draggable", target);
+
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 200));
+    target.dispatchTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 200));
+
+    assertThat(target.getTranslationX()).isWithin(E).of(0f);
+    assertThat(target.getTranslationY()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void removingTheLastLazySlotCancelsThePendingRelease() {
+    DirectManipulator manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setLazyGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.setRecognizerReleaseDelay(100);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 0, 0));
+    GestureRecognizer dragGestureRecognizer =
+      manipulator.removeGestureRecognizer(DirectManipulator.DRAG);
+
+    assertThat(manipulator.isLazy(DirectManipulator.DRAG)).isFalse();
+
+    // Filled again within the delay, the slot must not be emptied by the removed slot's release.
+    manipulator.setLazyGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.setGestureRecognizer(DirectManipulator.DRAG, dragGestureRecognizer);
+    ShadowLooper.idleMainLooper(5000);
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG))
+      .isSameAs(dragGestureRecognizer);
+  }
+
+  @Test
+  public void touchDownCancelsThePendingRelease() {
+    DirectManipulator manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setLazyGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.setRecognizerReleaseDelay(100);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    GestureRecognizer dragGestureRecognizer =
+      manipulator.getGestureRecognizer(DirectManipulator.DRAG);
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 0, 0));
+    ShadowLooper.idleMainLooper(50);
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    ShadowLooper.idleMainLooper(5000);
+
+    assertThat(manipulator.getGestureRecognizer(DirectManipulator.DRAG))
+      .isSameAs(dragGestureRecognizer);
+  }
+
+  @Test
+  public void skippedMovesAreCoalescedAndFlushedBeforeUp() {
+    DragGestureRecognizer dragGestureRecognizer = spy(new DragGestureRecognizer());
+    dragGestureRecognizer.dragSlop = 0;
+    dragGestureRecognizer.setElement(target);
+    DirectManipulator manipulator = new DirectManipulator();
+    manipulator.setTarget(target);
+    manipulator.setGestureRecognizer(DirectManipulator.DRAG, dragGestureRecognizer);
+    setDegradationTier(manipulator, AdaptiveDegradation.TIER_SKIP_EVENTS);
+
+    ShadowLooper.pauseMainLooper();
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 0, 0));
+    manipulator.onGesturesActive();
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 50, 0));
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_MOVE, 100, 0));
+
+    // Both moves are held for the next frame.
+    assertThat(target.getTranslationX()).isWithin(E).of(0f);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_UP, 100, 0));
 
-    when(event.getPointerCount()).thenReturn(3);
-    when(event.getAction()).thenReturn(action | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
-    when(event.getActionMasked()).thenReturn(action);
-    when(event.getActionIndex()).thenReturn(index);
+    // Only the latest move reached the recognizer, just before the up.
+    assertThat(target.getTranslationX()).isWithin(E).of(100f);
+    verify(dragGestureRecognizer, times(3)).onTouchEvent(any(MotionEvent.class));
+  }
+
+  @Test
+  public void skippedMoveIsFlushedBeforePointerUp() {
+    DirectManipulator manipulator = createManipulator(target);
+    setDegradationTier(manipulator, AdaptiveDegradation.TIER_SKIP_EVENTS);
+
+    ShadowLooper.pauseMainLooper();
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 100, 100));
+    manipulator.onGesturesActive();
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, 100, 100, 200, 100));
+    manipulator.onTouchEvent(createCopyableMultiTouchMove(120, 100, 220, 100));
+    manipulator.onTouchEvent(createCopyableMultiTouchMove(140, 100, 240, 100));
+
+    assertThat(target.getTranslationX()).isWithin(E).of(0f);
+
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_UP, 1, 140, 100, 240, 100));
+
+    assertThat(target.getTranslationX()).isWithin(E).of(40f);
+    assertThat(target.getTranslationY()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void deferredPivotStaysInPlaceWhilePinching() {
+    DirectManipulator manipulator = createManipulator(target);
+    setDegradationTier(manipulator, AdaptiveDegradation.TIER_DEFER_PIVOT);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 100, 100));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, 100, 100, 200, 100));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 100, 100, 250, 100));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 100, 100, 300, 100));
+
+    assertThat(target.getScaleX()).isGreaterThan(1f);
+    assertThat(target.getPivotX()).isWithin(E).of(25f);
+    assertThat(target.getPivotY()).isWithin(E).of(37.5f);
+  }
+
+  @Test
+  public void rotationStopsWithoutRotationTier() {
+    DirectManipulator manipulator = createManipulator(target);
+    setDegradationTier(manipulator, AdaptiveDegradation.TIER_NO_ROTATION);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 100, 100));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, 100, 100, 200, 100));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 100, 100, 200, 200));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 100, 100, 250, 250));
+
+    assertThat(target.getScaleX()).isGreaterThan(1f);
+    assertThat(target.getRotation()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void steppingUpMidGestureJumpsByTheMissedRotation() {
+    DirectManipulator manipulator = createManipulator(target);
+    AdaptiveDegradation degradation =
+      setDegradationTier(manipulator, AdaptiveDegradation.TIER_NO_ROTATION);
+
+    manipulator.onTouchEvent(createMotionEvent(MotionEvent.ACTION_DOWN, 100, 100));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_POINTER_DOWN, 1, 100, 100, 200, 100));
+    // A quarter turn around the centroid.
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 150, 50, 150, 150));
 
-    when(event.getRawX()).thenReturn(x0);
-    when(event.getRawY()).thenReturn(y0);
+    assertThat(target.getRotation()).isWithin(E).of(0f);
 
-    when(event.getX(0)).thenReturn(x0);
-    when(event.getY(0)).thenReturn(y0);
+    degradation.tier = AdaptiveDegradation.TIER_DEFER_PIVOT;
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 150, 50, 150, 150));
+    manipulator.onTouchEvent(
+      createMultiTouchMotionEvent(MotionEvent.ACTION_MOVE, 0, 150, 50, 150, 150));
 
-    when(event.getX(1)).thenReturn(x1);
-    when(event.getY(1)).thenReturn(y1);
+    assertThat(Math.abs(target.getRotation())).isWithin(0.01f).of(90f);
+  }
+
+  private static AdaptiveDegradation setDegradationTier(DirectManipulator manipulator, int tier) {
+    AdaptiveDegradation degradation = new AdaptiveDegradation();
+    degradation.tier = tier;
+    manipulator.setAdaptiveDegradation(degradation);
+    return degradation;
+  }
 
-    when(event.getX(2)).thenReturn(x2);
-    when(event.getY(2)).thenReturn(y2);
+  private static DirectManipulator createManipulator(View view) {
+    DragGestureRecognizer dragGestureRecognizer = new DragGestureRecognizer();
+    dragGestureRecognizer.dragSlop = 0;
+    ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+    scaleGestureRecognizer.scaleSlop = 0;
+    RotateGestureRecognizer rotateGestureRecognizer = new RotateGestureRecognizer();
+    rotateGestureRecognizer.rotateSlop = 0;
+    dragGestureRecognizer.setElement(view);
+    scaleGestureRecognizer.setElement(view);
+    rotateGestureRecognizer.setElement(view);
+
+    DirectManipulator manipulator = new DirectManipulator();
+    manipulator.setTarget(view);
+    manipulator.setGestureRecognizer(DirectManipulator.DRAG, dragGestureRecognizer);
+    manipulator.setGestureRecognizer(DirectManipulator.SCALE, scaleGestureRecognizer);
+    manipulator.setGestureRecognizer(DirectManipulator.ROTATE, rotateGestureRecognizer);
+    return manipulator;
+  }
+
+  private MotionEvent createMotionEvent(int action, float x, float y) {
+    return events.create(action, x, y);
+  }
 
+  /**
+   * Creates a real two-pointer move. Unlike the mocks, it can be copied with {@link
+   * MotionEvent#obtain(MotionEvent)}, as held moves are.
+   */
+  private MotionEvent createCopyableMultiTouchMove(float x0, float y0, float x1, float y1) {
+    MotionEvent event = createMotionEvent(MotionEvent.ACTION_MOVE, x0, y0);
+    ShadowMotionEvent shadowEvent = Shadows.shadowOf(event);
+    shadowEvent.setPointer2(x1, y1);
+    shadowEvent.setPointerIds(0, 1);
     return event;
   }
+
+  private MotionEvent createMultiTouchMotionEvent(
+    int action, int index, float x0, float y0, float x1, float y1) {
+    return events.createMultiTouch(action, index, x0, y0, x1, y1);
+  }
+
+  private MotionEvent createMultiTouchMotionEvent(
+    int action, int index, float x0, float y0, float x1, float y1, float x2, float y2) {
+    return events.createMultiTouch(action, index, x0, y0, x1, y1, x2, y2);
+  }
 }
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.support.annotation.Nullable;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.MotionRuntime;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class GestureTraceTests {
+  private static final float E = 1f / 256;
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private GestureTraceRecorder recorder;
+
+  @Before
+  public void setUp() {
+    recorder = new GestureTraceRecorder(1024);
+    recorder.record(MotionEvent.obtain(100, 100, MotionEvent.ACTION_DOWN, 10.5f, 20.25f, 0));
+    recorder.record(MotionEvent.obtain(100, 116, MotionEvent.ACTION_MOVE, 40.125f, -5f, 0));
+    recorder.record(MotionEvent.obtain(100, 132, MotionEvent.ACTION_UP, 40.125f, -5f, 0));
+  }
+
+  @Test
+  public void replaysRecordedEvents() throws IOException {
+    GestureTraceReplayer replayer = new GestureTraceReplayer(ByteBuffer.wrap(toBytes()));
+
+    assertThat(replayer.readEvent()).isTrue();
+    assertThat(replayer.action).isEqualTo(MotionEvent.ACTION_DOWN);
+    assertThat(replayer.pointerCount).isEqualTo(1);
+    assertThat(replayer.downTime).isEqualTo(100);
+    assertThat(replayer.sampleTimes[0]).isEqualTo(100);
+    assertThat(replayer.coordinates[0]).isWithin(E).of(10.5f);
+    assertThat(replayer.coordinates[1]).isWithin(E).of(20.25f);
+
+    assertThat(replayer.readEvent()).isTrue();
+    assertThat(replayer.action).isEqualTo(MotionEvent.ACTION_MOVE);
+    assertThat(replayer.downTime).isEqualTo(100);
+    assertThat(replayer.sampleTimes[0]).isEqualTo(116);
+    assertThat(replayer.coordinates[0]).isWithin(E).of(40.125f);
+    assertThat(replayer.coordinates[1]).isWithin(E).of(-5f);
+
+    assertThat(replayer.readEvent()).isTrue();
+    assertThat(replayer.action).isEqualTo(MotionEvent.ACTION_UP);
+    assertThat(replayer.sampleTimes[0]).isEqualTo(132);
+
+    assertThat(replayer.readEvent()).isFalse();
+  }
+
+  @Test
+  public void rewindStartsOver() throws IOException {
+    GestureTraceReplayer replayer = new GestureTraceReplayer(ByteBuffer.wrap(toBytes()));
+    replayer.readEvent();
+    replayer.readEvent();
+
+    replayer.rewind();
+
+    assertThat(replayer.readEvent()).isTrue();
+    assertThat(replayer.sampleTimes[0]).isEqualTo(100);
+  }
+
+  @Test
+  public void mapsTraceFile() throws IOException {
+    File file = folder.newFile("trace");
+    FileOutputStream out = new FileOutputStream(file);
+    recorder.writeTo(out);
+    out.close();
+
+    GestureTraceReplayer replayer = GestureTraceReplayer.map(file);
+    int events = 0;
+    while (replayer.readEvent()) {
+      events++;
+    }
+
+    assertThat(events).isEqualTo(3);
+  }
+
+  @Test
+  public void fullRecorderDropsEvents() {
+    GestureTraceRecorder small = new GestureTraceRecorder(32);
+    small.record(MotionEvent.obtain(0, 0, MotionEvent.ACTION_DOWN, 0, 0, 0));
+
+    assertThat(small.isOverflowed()).isTrue();
+    assertThat(small.getSize()).isEqualTo(5);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsCapacityBelowTheHeader() {
+    new GestureTraceRecorder(GestureTraceRecorder.HEADER_SIZE - 1);
+  }
+
+  @Test
+  public void replaysMultiTouchGestureToTheSameTransform() throws IOException {
+    MotionRuntime runtime = new MotionRuntime();
+    Context context = Robolectric.setupActivity(Activity.class);
+    View recorded = new View(context);
+    recorded.layout(0, 0, 50, 75);
+    View replayed = new View(context);
+    replayed.layout(0, 0, 50, 75);
+    GestureTraceRecorder multiTouchRecorder = new GestureTraceRecorder(1024);
+    addGesturePlans(runtime, recorded, multiTouchRecorder);
+    addGesturePlans(runtime, replayed, null);
+
+    TouchEvents events = new TouchEvents();
+    recorded.dispatchTouchEvent(events.create(MotionEvent.ACTION_DOWN, 0, 0));
+    recorded.dispatchTouchEvent(
+      events.createMultiTouch(MotionEvent.ACTION_POINTER_DOWN, 1, -10, 0, 10, 0));
+    recorded.dispatchTouchEvent(events.createMultiTouch(MotionEvent.ACTION_MOVE, 1, -20, 0, 20, 0));
+    recorded.dispatchTouchEvent(events.createMultiTouch(MotionEvent.ACTION_MOVE, 1, 0, -20, 0, 20));
+    recorded.dispatchTouchEvent(
+      events.createMultiTouch(MotionEvent.ACTION_MOVE, 1, 10, -10, 10, 30));
+    recorded.dispatchTouchEvent(
+      events.createMultiTouch(MotionEvent.ACTION_POINTER_UP, 1, 10, -10, 10, 30));
+    recorded.dispatchTouchEvent(events.create(MotionEvent.ACTION_UP, 10, -10));
+
+    GestureTraceReplayer replayer =
+      new GestureTraceReplayer(ByteBuffer.wrap(toBytes(multiTouchRecorder)));
+    replayer.eventFactory = TEST_EVENTS;
+
+    assertThat(replayer.replay(replayed)).isEqualTo(7);
+    assertThat(recorded.getScaleX()).isWithin(E).of(2f);
+    assertThat(recorded.getRotation()).isWithin(E).of(90f);
+    assertThat(recorded.getTranslationX()).isWithin(E).of(10f);
+    assertThat(recorded.getTranslationY()).isWithin(E).of(10f);
+    assertThat(replayed.getScaleX()).isWithin(E).of(recorded.getScaleX());
+    assertThat(replayed.getScaleY()).isWithin(E).of(recorded.getScaleY());
+    assertThat(replayed.getRotation()).isWithin(E).of(recorded.getRotation());
+    assertThat(replayed.getTranslationX()).isWithin(E).of(recorded.getTranslationX());
+    assertThat(replayed.getTranslationY()).isWithin(E).of(recorded.getTranslationY());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void rejectsOtherData() {
+    new GestureTraceReplayer(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}));
+  }
+
+  private byte[] toBytes() throws IOException {
+    return toBytes(recorder);
+  }
+
+  private static byte[] toBytes(GestureTraceRecorder recorder) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    recorder.writeTo(out);
+    return out.toByteArray();
+  }
+
+  private static void addGesturePlans(
+    MotionRuntime runtime, View target, @Nullable GestureTraceRecorder recorder) {
+    Draggable draggable = new Draggable();
+    ((DragGestureRecognizer) draggable.gestureRecognizer).dragSlop = 0;
+    draggable.setTraceRecorder(recorder);
+    Pinchable pinchable = new Pinchable();
+    ((ScaleGestureRecognizer) pinchable.gestureRecognizer).scaleSlop = 0;
+    Rotatable rotatable = new Rotatable();
+    ((RotateGestureRecognizer) rotatable.gestureRecognizer).rotateSlop = 0;
+
+    runtime.addPlan(draggable, target);
+    runtime.addPlan(pinchable, target);
+    runtime.addPlan(rotatable, target);
+  }
+
+  /**
+   * Builds each decoded event from its newest sample the way {@link TouchEvents} does: a real
+   * event for one pointer, and a stub-only mock for more.
+   */
+  private static final GestureTraceReplayer.EventFactory TEST_EVENTS =
+    new GestureTraceReplayer.EventFactory() {
+      @Override
+      public MotionEvent obtainEvent(GestureTraceReplayer replayer, long offset) {
+        int sample = replayer.sampleCount - 1;
+        int base = sample * GestureTraceRecorder.MAX_POINTERS * 2;
+        float[] coordinates = replayer.coordinates;
+        long downTime = replayer.downTime + offset;
+        long eventTime = replayer.sampleTimes[sample] + offset;
+        int action = replayer.action;
+
+        if (replayer.pointerCount == 1) {
+          return MotionEvent.obtain(
+            downTime, eventTime, action, coordinates[base], coordinates[base + 1], 0);
+        }
+
+        MotionEvent event = mock(MotionEvent.class);
+        when(event.getDownTime()).thenReturn(downTime);
+        when(event.getEventTime()).thenReturn(eventTime);
+        when(event.getPointerCount()).thenReturn(replayer.pointerCount);
+        when(event.getAction()).thenReturn(action);
+        when(event.getActionMasked()).thenReturn(action & MotionEvent.ACTION_MASK);
+        when(event.getActionIndex()).thenReturn(
+          (action & MotionEvent.ACTION_POINTER_INDEX_MASK)
+            >> MotionEvent.ACTION_POINTER_INDEX_SHIFT);
+        when(event.getRawX()).thenReturn(coordinates[base]);
+        when(event.getRawY()).thenReturn(coordinates[base + 1]);
+        for (int i = 0; i < replayer.pointerCount; i++) {
+          when(event.getPointerId(i)).thenReturn(replayer.pointerIds[i]);
+          when(event.getX(i)).thenReturn(coordinates[base + i * 2]);
+          when(event.getY(i)).thenReturn(coordinates[base + i * 2 + 1]);
+        }
+        return event;
+      }
+    };
+}
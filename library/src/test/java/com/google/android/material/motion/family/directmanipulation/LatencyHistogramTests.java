@@ -0,0 +1,90 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class LatencyHistogramTests {
+
+  private LatencyHistogram histogram;
+
+  @Before
+  public void setUp() {
+    histogram = new LatencyHistogram();
+  }
+
+  @Test
+  public void emptyHistogramReportsZero() {
+    assertThat(histogram.getCount()).isEqualTo(0);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(0);
+    assertThat(histogram.getMean()).isWithin(0.0001).of(0);
+  }
+
+  @Test
+  public void smallValuesAreExact() {
+    for (int i = 1; i <= 10; i++) {
+      histogram.record(i);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(10);
+    assertThat(histogram.getValueAtPercentile(50)).isEqualTo(5);
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(10);
+    assertThat(histogram.getMax()).isEqualTo(10);
+    assertThat(histogram.getMean()).isWithin(0.0001).of(5.5);
+  }
+
+  @Test
+  public void largeValuesAreWithinPrecision() {
+    long[] values = {100, 1000, 16667, 250000, 3000000000L};
+    for (long value : values) {
+      histogram.reset();
+      histogram.record(value);
+      histogram.record(value * 2);
+
+      long reported = histogram.getValueAtPercentile(50);
+      assertThat(reported).isAtLeast(value);
+      assertThat((double) reported).isAtMost(value * 1.04);
+    }
+  }
+
+  @Test
+  public void negativeValuesAreRecordedAsZero() {
+    histogram.record(-5);
+
+    assertThat(histogram.getValueAtPercentile(100)).isEqualTo(0);
+  }
+
+  @Test
+  public void copyIntoReplacesContents() {
+    histogram.record(42);
+    LatencyHistogram copy = new LatencyHistogram();
+    copy.record(7);
+    copy.record(9);
+
+    histogram.copyInto(copy);
+
+    assertThat(copy.getCount()).isEqualTo(1);
+    assertThat(copy.getValueAtPercentile(100)).isEqualTo(42);
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Matrix;
+import android.view.View;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Checks the closed-form pivot compensation against the {@link Matrix} based compensation that
+ * {@link GesturePerformer} used to do.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class PivotCompensationTests {
+  private static final float E = 0.01f;
+  private static final int ITERATIONS = 100;
+
+  private final Random random = new Random(0);
+  private final Matrix matrix = new Matrix();
+  private final Matrix inverse = new Matrix();
+  private final float[] array = new float[2];
+  private final float[] adjustment = new float[2];
+
+  private View target;
+
+  @Before
+  public void setUp() {
+    Context context = Robolectric.setupActivity(Activity.class);
+    target = new View(context);
+    target.layout(20, 30, 70, 105);
+  }
+
+  @Test
+  public void noAdjustmentWhenPivotDoesNotMove() {
+    PivotCompensation.getTranslationAdjustment(10, 20, 10, 20, 3f, 2f, 45f, adjustment);
+
+    assertThat(adjustment[0]).isWithin(E).of(0f);
+    assertThat(adjustment[1]).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void noAdjustmentForIdentityTransform() {
+    PivotCompensation.getTranslationAdjustment(10, 20, 30, 40, 1f, 1f, 0f, adjustment);
+
+    assertThat(adjustment[0]).isWithin(E).of(0f);
+    assertThat(adjustment[1]).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void matchesMatrixCompensation() {
+    for (int i = 0; i < ITERATIONS; i++) {
+      randomizeTransform();
+
+      float fromPivotX = target.getPivotX();
+      float fromPivotY = target.getPivotY();
+      float toPivotX = random.nextFloat() * 50;
+      float toPivotY = random.nextFloat() * 75;
+
+      // The point that must stay in place, as calculated by the previous implementation.
+      array[0] = toPivotX;
+      array[1] = toPivotY;
+      GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
+      matrix.mapPoints(array);
+      float untransformedX = array[0];
+      float untransformedY = array[1];
+
+      PivotCompensation.getTranslationAdjustment(
+        fromPivotX,
+        fromPivotY,
+        toPivotX,
+        toPivotY,
+        target.getScaleX(),
+        target.getScaleY(),
+        target.getRotation(),
+        adjustment);
+
+      target.setPivotX(toPivotX);
+      target.setPivotY(toPivotY);
+
+      array[0] = toPivotX;
+      array[1] = toPivotY;
+      GestureRecognizer.getTransformationMatrix(target, matrix, inverse);
+      matrix.mapPoints(array);
+
+      assertThat(adjustment[0]).isWithin(E).of(untransformedX - array[0]);
+      assertThat(adjustment[1]).isWithin(E).of(untransformedY - array[1]);
+    }
+  }
+
+  private void randomizeTransform() {
+    target.setTranslationX(random.nextFloat() * 200 - 100);
+    target.setTranslationY(random.nextFloat() * 200 - 100);
+    target.setScaleX(random.nextFloat() * 4 + 0.25f);
+    target.setScaleY(random.nextFloat() * 4 + 0.25f);
+    target.setRotation(random.nextFloat() * 720 - 360);
+    target.setPivotX(random.nextFloat() * 50);
+    target.setPivotY(random.nextFloat() * 75);
+  }
+}
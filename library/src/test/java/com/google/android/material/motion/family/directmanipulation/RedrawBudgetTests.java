@@ -0,0 +1,426 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.app.Activity;
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
+import android.widget.FrameLayout;
+
+import com.google.android.material.motion.gestures.DragGestureRecognizer;
+import com.google.android.material.motion.gestures.RotateGestureRecognizer;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
+import com.google.android.material.motion.runtime.MotionRuntime;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import static com.google.common.truth.Truth.assertWithMessage;
+
+/**
+ * Counts the view property updates, {@link View#invalidate()} calls, and {@link
+ * android.graphics.drawable.Drawable} draws that one scripted gesture causes for every combination
+ * of plans, and fails when a count leaves its recorded range.
+ * <p>
+ * The gesture drags with one finger for 4 moves, then pinches and rotates with two fingers for 8
+ * moves. Two events arrive per frame, as on a 120 Hz touch panel, and the target is drawn at the
+ * end of each frame in which it was invalidated.
+ * <p>
+ * Each range is counted in events, or in frames when frame-aligned. Its lower end assumes that a
+ * recognizer begins on its first move without a change, and that pointer changes re-anchor it.
+ * Its upper end also counts those events. A change that writes a property on any further event
+ * leaves the range.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class RedrawBudgetTests {
+
+  private static final int EVENTS_PER_FRAME = 2;
+
+  private MotionRuntime runtime;
+  private CountingParent parent;
+  private CountingView target;
+  private Canvas canvas;
+
+  private int events;
+  private int changedFrames;
+  private int updatesAtLastFrame;
+
+  @Before
+  public void setUp() {
+    runtime = new MotionRuntime();
+    Activity activity = Robolectric.setupActivity(Activity.class);
+    parent = new CountingParent(activity);
+    target = new CountingView(activity);
+    parent.addView(target, new FrameLayout.LayoutParams(200, 300));
+    activity.setContentView(parent);
+    parent.layout(0, 0, 500, 500);
+    target.layout(0, 0, 200, 300);
+    canvas = new Canvas(Bitmap.createBitmap(500, 500, Bitmap.Config.ARGB_8888));
+  }
+
+  @Test
+  public void draggable() {
+    runtime.addPlan(new Draggable(createDragGestureRecognizer()), target);
+    perform();
+
+    // Every one-finger move but the first, every two-finger move, and the pointer changes.
+    assertUpdates("translation", target.translationUpdates, 2, 11, 14);
+    assertUpdates("scale", target.scaleUpdates, 2, 0, 0);
+    assertUpdates("rotation", target.rotationUpdates, 1, 0, 0);
+    assertUpdates("pivot", target.pivotUpdates, 2, 0, 0);
+    assertRedraws();
+  }
+
+  @Test
+  public void pinchable() {
+    runtime.addPlan(new Pinchable(createScaleGestureRecognizer()), target);
+    perform();
+
+    // Every two-finger move but the first, and the pointer changes.
+    assertUpdates("translation", target.translationUpdates, 2, 0, 0);
+    assertUpdates("scale", target.scaleUpdates, 2, 7, 10);
+    assertUpdates("rotation", target.rotationUpdates, 1, 0, 0);
+    assertUpdates("pivot", target.pivotUpdates, 2, 0, 0);
+    assertRedraws();
+  }
+
+  @Test
+  public void rotatable() {
+    runtime.addPlan(new Rotatable(createRotateGestureRecognizer()), target);
+    perform();
+
+    assertUpdates("translation", target.translationUpdates, 2, 0, 0);
+    assertUpdates("scale", target.scaleUpdates, 2, 0, 0);
+    assertUpdates("rotation", target.rotationUpdates, 1, 7, 10);
+    assertUpdates("pivot", target.pivotUpdates, 2, 0, 0);
+    assertRedraws();
+  }
+
+  @Test
+  public void draggableAndPinchable() {
+    runtime.addPlan(new Draggable(createDragGestureRecognizer()), target);
+    runtime.addPlan(new Pinchable(createScaleGestureRecognizer()), target);
+    perform();
+
+    // The pivot follows the centroid while pinching, and is reset when the pinch ends. Each pivot
+    // change also compensates the translation, up to the final UP.
+    assertUpdates("translation", target.translationUpdates, 2, 12, 15);
+    assertUpdates("scale", target.scaleUpdates, 2, 7, 10);
+    assertUpdates("rotation", target.rotationUpdates, 1, 0, 0);
+    assertUpdates("pivot", target.pivotUpdates, 2, 8, 11);
+    assertRedraws();
+  }
+
+  @Test
+  public void draggableAndRotatable() {
+    runtime.addPlan(new Draggable(createDragGestureRecognizer()), target);
+    runtime.addPlan(new Rotatable(createRotateGestureRecognizer()), target);
+    perform();
+
+    assertUpdates("translation", target.translationUpdates, 2, 12, 15);
+    assertUpdates("scale", target.scaleUpdates, 2, 0, 0);
+    assertUpdates("rotation", target.rotationUpdates, 1, 7, 10);
+    assertUpdates("pivot", target.pivotUpdates, 2, 8, 11);
+    assertRedraws();
+  }
+
+  @Test
+  public void pinchableAndRotatable() {
+    runtime.addPlan(new Pinchable(createScaleGestureRecognizer()), target);
+    runtime.addPlan(new Rotatable(createRotateGestureRecognizer()), target);
+    perform();
+
+    // Without a drag, the pivot stays in the center.
+    assertUpdates("translation", target.translationUpdates, 2, 0, 0);
+    assertUpdates("scale", target.scaleUpdates, 2, 7, 10);
+    assertUpdates("rotation", target.rotationUpdates, 1, 7, 10);
+    assertUpdates("pivot", target.pivotUpdates, 2, 0, 0);
+    assertRedraws();
+  }
+
+  @Test
+  public void directlyManipulable() {
+    runtime.addPlan(createDirectlyManipulable(), target);
+    perform();
+
+    assertUpdates("translation", target.translationUpdates, 2, 12, 15);
+    assertUpdates("scale", target.scaleUpdates, 2, 7, 10);
+    assertUpdates("rotation", target.rotationUpdates, 1, 7, 10);
+    assertUpdates("pivot", target.pivotUpdates, 2, 8, 11);
+    assertRedraws();
+  }
+
+  @Test
+  public void frameAlignedDirectlyManipulable() {
+    DirectlyManipulable plan = createDirectlyManipulable();
+    plan.setFrameAligned(true);
+    runtime.addPlan(plan, target);
+    perform();
+
+    // Counted in frames: each frame writes a property at most once, however many events it holds.
+    assertUpdates("translation", target.translationUpdates, 2, 7, 8);
+    assertUpdates("scale", target.scaleUpdates, 2, 4, 6);
+    assertUpdates("rotation", target.rotationUpdates, 1, 4, 6);
+    assertUpdates("pivot", target.pivotUpdates, 2, 5, 6);
+    assertRedraws();
+  }
+
+  @Test
+  public void targetMatrixDirectlyManipulable() {
+    DirectlyManipulable plan = createDirectlyManipulable();
+    plan.setTargetMatrix(new Matrix());
+    runtime.addPlan(plan, target);
+    perform();
+
+    assertWithMessage("property updates").that(target.getPropertyUpdates()).isEqualTo(0);
+    // The target is invalidated once for each event that changed the matrix.
+    assertCount("invalidations", target.invalidations, 11, 15);
+    assertWithMessage("draws").that(target.background.draws).isEqualTo(changedFrames);
+  }
+
+  /**
+   * Asserts that a group of properties, written through the given number of setters, changed on a
+   * number of events or frames within the given range.
+   */
+  private static void assertUpdates(String name, int updates, int setters, int min, int max) {
+    assertCount(name + " updates", updates, setters * min, setters * max);
+  }
+
+  private static void assertCount(String name, int count, int min, int max) {
+    assertWithMessage(name).that(count).isAtLeast(min);
+    assertWithMessage(name).that(count).isAtMost(max);
+  }
+
+  /**
+   * Asserts that the performer never invalidated the target's content, and that the target was
+   * drawn exactly once in each frame in which it changed.
+   */
+  private void assertRedraws() {
+    assertWithMessage("invalidations").that(target.invalidations).isEqualTo(0);
+    assertWithMessage("draws").that(target.background.draws).isEqualTo(changedFrames);
+  }
+
+  /**
+   * Replays the scripted gesture, and draws the target at the end of each frame in which it was
+   * invalidated.
+   */
+  private void perform() {
+    // The target must have been drawn before its first invalidation is propagated.
+    target.draw(canvas);
+    target.reset();
+    events = 0;
+    changedFrames = 0;
+    updatesAtLastFrame = 0;
+
+    TouchEvents touchEvents = new TouchEvents();
+    dispatch(touchEvents.create(MotionEvent.ACTION_DOWN, 100, 100));
+    for (int i = 1; i <= 4; i++) {
+      dispatch(touchEvents.create(MotionEvent.ACTION_MOVE, 100 + 10 * i, 100));
+    }
+    dispatch(
+      touchEvents.createMultiTouch(MotionEvent.ACTION_POINTER_DOWN, 1, 140, 100, 240, 100));
+    for (int i = 1; i <= 8; i++) {
+      double angle = 0.05 * i;
+      float radius = 100 + 10 * i;
+      dispatch(
+        touchEvents.createMultiTouch(
+          MotionEvent.ACTION_MOVE,
+          0,
+          140,
+          100,
+          (float) (140 + radius * Math.cos(angle)),
+          (float) (100 + radius * Math.sin(angle))));
+    }
+    dispatch(
+      touchEvents.createMultiTouch(MotionEvent.ACTION_POINTER_UP, 1, 140, 100, 220, 140));
+    dispatch(touchEvents.create(MotionEvent.ACTION_UP, 140, 100));
+    if (events % EVENTS_PER_FRAME != 0) {
+      frame();
+    }
+  }
+
+  private void dispatch(MotionEvent event) {
+    target.dispatchTouchEvent(event);
+    if (++events % EVENTS_PER_FRAME == 0) {
+      frame();
+    }
+  }
+
+  private void frame() {
+    ShadowLooper.runUiThreadTasksIncludingDelayedTasks();
+    int updates = target.getPropertyUpdates() + target.invalidations;
+    if (updates != updatesAtLastFrame) {
+      updatesAtLastFrame = updates;
+      changedFrames++;
+    }
+    if (target.dirty) {
+      target.draw(canvas);
+      target.dirty = false;
+    }
+  }
+
+  private static DirectlyManipulable createDirectlyManipulable() {
+    return new DirectlyManipulable(
+      createDragGestureRecognizer(),
+      createScaleGestureRecognizer(),
+      createRotateGestureRecognizer());
+  }
+
+  private static DragGestureRecognizer createDragGestureRecognizer() {
+    DragGestureRecognizer gestureRecognizer = new DragGestureRecognizer();
+    gestureRecognizer.dragSlop = 0;
+    return gestureRecognizer;
+  }
+
+  private static ScaleGestureRecognizer createScaleGestureRecognizer() {
+    ScaleGestureRecognizer gestureRecognizer = new ScaleGestureRecognizer();
+    gestureRecognizer.scaleSlop = 0;
+    return gestureRecognizer;
+  }
+
+  private static RotateGestureRecognizer createRotateGestureRecognizer() {
+    RotateGestureRecognizer gestureRecognizer = new RotateGestureRecognizer();
+    gestureRecognizer.rotateSlop = 0;
+    return gestureRecognizer;
+  }
+
+  /**
+   * Marks its counting children dirty when they propagate an invalidation to it.
+   */
+  private static class CountingParent extends FrameLayout {
+
+    CountingParent(Context context) {
+      super(context);
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+      for (int i = 0, count = getChildCount(); i < count; i++) {
+        View child = getChildAt(i);
+        if (child instanceof CountingView) {
+          ((CountingView) child).dirty = true;
+        }
+      }
+      return super.invalidateChildInParent(location, dirty);
+    }
+  }
+
+  /**
+   * Counts the updates of each of its properties, its explicit invalidations, and the draws of its
+   * background.
+   */
+  private static class CountingView extends View {
+
+    final CountingDrawable background = new CountingDrawable();
+    int translationUpdates;
+    int scaleUpdates;
+    int rotationUpdates;
+    int pivotUpdates;
+    int invalidations;
+    boolean dirty;
+
+    CountingView(Context context) {
+      super(context);
+      setBackground(background);
+    }
+
+    void reset() {
+      translationUpdates = 0;
+      scaleUpdates = 0;
+      rotationUpdates = 0;
+      pivotUpdates = 0;
+      invalidations = 0;
+      background.draws = 0;
+      dirty = false;
+    }
+
+    int getPropertyUpdates() {
+      return translationUpdates + scaleUpdates + rotationUpdates + pivotUpdates;
+    }
+
+    @Override
+    public void invalidate() {
+      invalidations++;
+      super.invalidate();
+    }
+
+    @Override
+    public void setTranslationX(float translationX) {
+      translationUpdates++;
+      super.setTranslationX(translationX);
+    }
+
+    @Override
+    public void setTranslationY(float translationY) {
+      translationUpdates++;
+      super.setTranslationY(translationY);
+    }
+
+    @Override
+    public void setScaleX(float scaleX) {
+      scaleUpdates++;
+      super.setScaleX(scaleX);
+    }
+
+    @Override
+    public void setScaleY(float scaleY) {
+      scaleUpdates++;
+      super.setScaleY(scaleY);
+    }
+
+    @Override
+    public void setRotation(float rotation) {
+      rotationUpdates++;
+      super.setRotation(rotation);
+    }
+
+    @Override
+    public void setPivotX(float pivotX) {
+      pivotUpdates++;
+      super.setPivotX(pivotX);
+    }
+
+    @Override
+    public void setPivotY(float pivotY) {
+      pivotUpdates++;
+      super.setPivotY(pivotY);
+    }
+  }
+
+  private static class CountingDrawable extends ColorDrawable {
+
+    int draws;
+
+    @Override
+    public void draw(Canvas canvas) {
+      draws++;
+      super.draw(canvas);
+    }
+  }
+}
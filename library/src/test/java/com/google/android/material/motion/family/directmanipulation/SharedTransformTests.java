@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.graphics.Matrix;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SharedTransformTests {
+  private static final float E = 0.0001f;
+
+  private SharedTransform transform;
+  private float[] values;
+
+  @Before
+  public void setUp() {
+    transform = new SharedTransform();
+    values = new float[SharedTransform.SIZE];
+  }
+
+  @Test
+  public void startsAsIdentity() {
+    transform.read(values);
+
+    assertThat(values[Matrix.MSCALE_X]).isWithin(E).of(1f);
+    assertThat(values[Matrix.MSCALE_Y]).isWithin(E).of(1f);
+    assertThat(values[Matrix.MTRANS_X]).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void setPublishesNewVersion() {
+    int before = transform.getVersion();
+    Matrix matrix = new Matrix();
+    matrix.setTranslate(10, 20);
+
+    transform.set(matrix);
+    int version = transform.read(values);
+
+    assertThat(version).isNotEqualTo(before);
+    assertThat(version).isEqualTo(transform.getVersion());
+    assertThat(values[Matrix.MTRANS_X]).isWithin(E).of(10f);
+    assertThat(values[Matrix.MTRANS_Y]).isWithin(E).of(20f);
+  }
+
+  @Test
+  public void readerNeverSeesPartialWrite() throws InterruptedException {
+    final AtomicBoolean running = new AtomicBoolean(true);
+    Thread writer = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        float[] written = new float[SharedTransform.SIZE];
+        for (int i = 0; running.get(); i++) {
+          Arrays.fill(written, i);
+          transform.publish(written);
+        }
+      }
+    });
+    writer.start();
+
+    try {
+      for (int i = 0; i < 100000; i++) {
+        transform.read(values);
+        for (int j = 1; j < SharedTransform.SIZE; j++) {
+          assertThat(values[j]).isEqualTo(values[0]);
+        }
+      }
+    } finally {
+      running.set(false);
+      writer.join();
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming.IsActiveToken;
+import com.google.android.material.motion.runtime.PerformerFeatures.ContinuousPerforming.IsActiveTokenGenerator;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class TokenGestureListenerTests {
+
+  private IsActiveTokenGenerator generator;
+  private IsActiveToken token;
+  private TokenGestureListener.ActivityListener activityListener;
+  private TokenGestureListener listener;
+
+  @Before
+  public void setUp() {
+    generator = mock(IsActiveTokenGenerator.class);
+    token = mock(IsActiveToken.class);
+    when(generator.generate()).thenReturn(token);
+    activityListener = mock(TokenGestureListener.ActivityListener.class);
+
+    listener = new TokenGestureListener(activityListener);
+    listener.setIsActiveTokenGenerator(generator);
+  }
+
+  @Test
+  public void overlappingGesturesShareOneToken() {
+    GestureRecognizer drag = mock(GestureRecognizer.class);
+    GestureRecognizer scale = mock(GestureRecognizer.class);
+    GestureRecognizer rotate = mock(GestureRecognizer.class);
+
+    changeState(drag, GestureRecognizer.BEGAN);
+    changeState(scale, GestureRecognizer.BEGAN);
+    changeState(rotate, GestureRecognizer.BEGAN);
+    changeState(scale, GestureRecognizer.RECOGNIZED);
+    changeState(rotate, GestureRecognizer.CANCELLED);
+    verify(token, never()).terminate();
+
+    changeState(drag, GestureRecognizer.RECOGNIZED);
+
+    verify(generator, times(1)).generate();
+    verify(token, times(1)).terminate();
+    verify(activityListener, times(1)).onGesturesActive();
+    verify(activityListener, times(1)).onGesturesIdle();
+  }
+
+  @Test
+  public void countsIssuedTokens() {
+    GestureCounters counters = new GestureCounters();
+    listener.setCounters(counters);
+    GestureRecognizer drag = mock(GestureRecognizer.class);
+    GestureRecognizer scale = mock(GestureRecognizer.class);
+
+    changeState(drag, GestureRecognizer.BEGAN);
+    changeState(scale, GestureRecognizer.BEGAN);
+    changeState(drag, GestureRecognizer.RECOGNIZED);
+    changeState(scale, GestureRecognizer.RECOGNIZED);
+    changeState(drag, GestureRecognizer.BEGAN);
+
+    assertThat(counters.getTokensIssued()).isEqualTo(2);
+  }
+
+  @Test
+  public void acquiredTokenOutlivesGestures() {
+    GestureRecognizer drag = mock(GestureRecognizer.class);
+
+    changeState(drag, GestureRecognizer.BEGAN);
+    listener.acquire();
+    changeState(drag, GestureRecognizer.RECOGNIZED);
+    verify(activityListener).onGesturesIdle();
+    verify(token, never()).terminate();
+
+    listener.release();
+
+    verify(generator, times(1)).generate();
+    verify(token).terminate();
+  }
+
+  @Test
+  public void unmatchedEndIsIgnored() {
+    GestureRecognizer drag = mock(GestureRecognizer.class);
+
+    changeState(drag, GestureRecognizer.CANCELLED);
+
+    verify(activityListener, never()).onGesturesIdle();
+    verify(generator, never()).generate();
+  }
+
+  private void changeState(GestureRecognizer gestureRecognizer, int state) {
+    when(gestureRecognizer.getState()).thenReturn(state);
+    listener.onStateChanged(gestureRecognizer);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import android.view.MotionEvent;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Creates the touch events of a scripted gesture, 16 milliseconds apart.
+ * <p>
+ * Single-touch events are real {@link MotionEvent}s. Multi-touch events are stub-only mocks, with
+ * pointer ids equal to their indices.
+ */
+final class TouchEvents {
+
+  private final long downTime;
+  private long eventTime;
+
+  TouchEvents() {
+    this(0);
+  }
+
+  TouchEvents(long downTime) {
+    this.downTime = downTime;
+    this.eventTime = downTime - 16;
+  }
+
+  MotionEvent create(int action, float x, float y) {
+    return MotionEvent.obtain(downTime, eventTime += 16, action, x, y, 0);
+  }
+
+  /**
+   * Creates a multi-touch event.
+   *
+   * @param index The index of the pointer that went down or up.
+   * @param coordinates The x and y coordinate of every pointer.
+   */
+  MotionEvent createMultiTouch(int action, int index, float... coordinates) {
+    MotionEvent event = mock(MotionEvent.class);
+
+    when(event.getDownTime()).thenReturn(downTime);
+    when(event.getEventTime()).thenReturn(eventTime += 16);
+
+    int pointerCount = coordinates.length / 2;
+    when(event.getPointerCount()).thenReturn(pointerCount);
+    when(event.getAction()).thenReturn(action | (index << MotionEvent.ACTION_POINTER_INDEX_SHIFT));
+    when(event.getActionMasked()).thenReturn(action);
+    when(event.getActionIndex()).thenReturn(index);
+
+    when(event.getRawX()).thenReturn(coordinates[0]);
+    when(event.getRawY()).thenReturn(coordinates[1]);
+
+    for (int i = 0; i < pointerCount; i++) {
+      when(event.getPointerId(i)).thenReturn(i);
+      when(event.getX(i)).thenReturn(coordinates[2 * i]);
+      when(event.getY(i)).thenReturn(coordinates[2 * i + 1]);
+    }
+
+    return event;
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static com.google.common.truth.Truth.assertThat;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class TouchPredictorTests {
+  private static final float E = 0.0001f;
+
+  private TouchPredictor predictor;
+  private PredictionStatistics statistics;
+
+  @Before
+  public void setUp() {
+    predictor = new TouchPredictor();
+    statistics = new PredictionStatistics();
+    predictor.setStatistics(statistics);
+  }
+
+  @Test
+  public void noPredictionFromOneSample() {
+    predictor.addSample(0, 10, 20);
+
+    assertThat(predictor.predict(16)).isFalse();
+    assertThat(predictor.offsetX).isWithin(E).of(0f);
+    assertThat(predictor.offsetY).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void extrapolatesConstantVelocity() {
+    for (int t = 0; t <= 32; t += 8) {
+      predictor.addSample(t, t * 2f, t * -1f);
+    }
+
+    assertThat(predictor.predict(16)).isTrue();
+    assertThat(predictor.offsetX).isWithin(E).of(32f);
+    assertThat(predictor.offsetY).isWithin(E).of(-16f);
+  }
+
+  @Test
+  public void measuresNoErrorForConstantVelocity() {
+    for (int t = 0; t <= 64; t += 8) {
+      predictor.addSample(t, t * 2f, 0f);
+      predictor.predict(8);
+    }
+
+    assertThat(statistics.getPredictionCount()).isEqualTo(8);
+    assertThat(statistics.getMeasuredCount()).isEqualTo(7);
+    assertThat(statistics.getMeanError()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void measuresHorizonsLongerThanTheEventInterval() {
+    for (int t = 0; t <= 64; t += 8) {
+      predictor.addSample(t, t * 2f, 0f);
+      predictor.predict(20);
+    }
+
+    // The predictions made at 48, 56, and 64 ms are still outstanding.
+    assertThat(statistics.getPredictionCount()).isEqualTo(8);
+    assertThat(statistics.getMeasuredCount()).isEqualTo(5);
+    assertThat(statistics.getMeanError()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void measuresErrorAgainstInterpolatedSample() {
+    predictor.addSample(0, 0f, 0f);
+    predictor.addSample(8, 16f, 0f);
+    predictor.predict(20);
+    predictor.addSample(16, 16f, 0f);
+    predictor.addSample(24, 16f, 0f);
+
+    assertThat(statistics.getMeasuredCount()).isEqualTo(0);
+
+    predictor.addSample(32, 16f, 0f);
+
+    assertThat(statistics.getMeasuredCount()).isEqualTo(1);
+    assertThat(statistics.getMaxError()).isWithin(E).of(40f);
+  }
+
+  @Test
+  public void measuresErrorWhenFingerStops() {
+    predictor.addSample(0, 0f, 0f);
+    predictor.addSample(8, 16f, 0f);
+    predictor.predict(8);
+    predictor.addSample(16, 16f, 0f);
+
+    assertThat(statistics.getMeasuredCount()).isEqualTo(1);
+    assertThat(statistics.getMaxError()).isWithin(E).of(16f);
+  }
+
+  @Test
+  public void accuratePredictionsSaveTheirHorizon() {
+    for (int t = 0; t <= 64; t += 8) {
+      predictor.addSample(t, t * 2f, 0f);
+      predictor.predict(8);
+    }
+
+    assertThat(statistics.getAccurateCount()).isEqualTo(7);
+    assertThat(statistics.getMeanLatencySavedMillis()).isWithin(E).of(8f);
+  }
+
+  @Test
+  public void inaccuratePredictionsSaveNoLatency() {
+    predictor.addSample(0, 0f, 0f);
+    predictor.addSample(8, 16f, 0f);
+    predictor.predict(8);
+    predictor.addSample(16, 32f, 0f);
+    predictor.predict(8);
+    predictor.addSample(24, 32f, 0f);
+
+    // The first prediction was exact, the second one overshot the stopped finger by 16 px.
+    assertThat(statistics.getMeasuredCount()).isEqualTo(2);
+    assertThat(statistics.getAccurateCount()).isEqualTo(1);
+    assertThat(statistics.getMeanLatencySavedMillis()).isWithin(E).of(4f);
+
+    statistics.reset();
+
+    assertThat(statistics.getAccurateCount()).isEqualTo(0);
+    assertThat(statistics.getMeanLatencySavedMillis()).isWithin(E).of(0f);
+  }
+
+  @Test
+  public void accurateErrorIsConfigurable() {
+    statistics.setAccurateError(16f);
+    predictor.addSample(0, 0f, 0f);
+    predictor.addSample(8, 16f, 0f);
+    predictor.predict(8);
+    predictor.addSample(16, 16f, 0f);
+
+    assertThat(statistics.getAccurateCount()).isEqualTo(1);
+    assertThat(statistics.getMeanLatencySavedMillis()).isWithin(E).of(8f);
+  }
+
+  @Test
+  public void resetForgetsSamples() {
+    predictor.addSample(0, 0f, 0f);
+    predictor.addSample(8, 16f, 0f);
+    predictor.reset();
+    predictor.addSample(16, 16f, 0f);
+
+    assertThat(predictor.predict(8)).isFalse();
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016-present The Material Motion Authors. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.android.material.motion.family.directmanipulation;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.google.common.truth.Truth.assertThat;
+
+/**
+ * Runs on a plain JVM, without Robolectric, because {@link TransformCore} has no Android
+ * dependencies.
+ */
+public class TransformCoreTests {
+  private static final float E = 0.01f;
+  private static final int ITERATIONS = 10000;
+
+  private final Random random = new Random(0);
+  private final float[] before = new float[2];
+  private final float[] after = new float[2];
+
+  private TransformCore transform;
+
+  @Before
+  public void setUp() {
+    transform = new TransformCore();
+    transform.read(0f, 0f, 1f, 1f, 0f, 25f, 50f);
+  }
+
+  @Test
+  public void gesturesAreRelativeToWhereTheyBegan() {
+    transform.read(10f, 20f, 2f, 2f, 30f, 25f, 50f);
+    transform.beginDrag();
+    transform.beginScale();
+    transform.beginRotation();
+
+    transform.drag(5f, -5f);
+    transform.scale(1.5f);
+    transform.rotate((float) (Math.PI / 2));
+
+    assertThat(transform.translationX).isWithin(E).of(15f);
+    assertThat(transform.translationY).isWithin(E).of(15f);
+    assertThat(transform.scaleX).isWithin(E).of(3f);
+    assertThat(transform.rotation).isWithin(E).of(120f);
+  }
+
+  @Test
+  public void commitReportsChangedPropertiesOnce() {
+    transform.setTranslation(1f, 2f);
+    transform.setRotation(45f);
+
+    assertThat(transform.commit(50f, 100f))
+      .isEqualTo(TransformCore.TRANSLATION | TransformCore.ROTATION);
+    assertThat(transform.isDirty()).isFalse();
+    assertThat(transform.commit(50f, 100f)).isEqualTo(0);
+  }
+
+  @Test
+  public void resetPivotKeepsTargetInPlace() {
+    for (int i = 0; i < ITERATIONS; i++) {
+      randomizeTransform();
+      float x = randomCoordinate();
+      float y = randomCoordinate();
+      map(x, y, before);
+
+      transform.requestResetPivot();
+      transform.commit(50f, 100f);
+      map(x, y, after);
+
+      assertThat(transform.pivotX).isWithin(E).of(25f);
+      assertThat(transform.pivotY).isWithin(E).of(50f);
+      assertThat(after[0]).isWithin(E).of(before[0]);
+      assertThat(after[1]).isWithin(E).of(before[1]);
+    }
+  }
+
+  @Test
+  public void pivotToCentroidKeepsTargetInPlace() {
+    for (int i = 0; i < ITERATIONS; i++) {
+      randomizeTransform();
+      float centroidX = randomCoordinate();
+      float centroidY = randomCoordinate();
+      map(centroidX, centroidY, before);
+
+      transform.requestPivotToCentroid(centroidX, centroidY);
+      transform.commit(50f, 100f);
+      map(centroidX, centroidY, after);
+
+      assertThat(transform.pivotX).isWithin(E).of(centroidX);
+      assertThat(after[0]).isWithin(E).of(before[0]);
+      assertThat(after[1]).isWithin(E).of(before[1]);
+    }
+  }
+
+  @Test
+  public void pivotToCentroidReplacesPendingTranslation() {
+    transform.beginDrag();
+    transform.drag(10f, 0f);
+    transform.requestPivotToCentroid(0f, 0f);
+    transform.commit(50f, 100f);
+
+    // The centroid was found with the committed transform, so the pivot is placed against it.
+    assertThat(transform.translationX).isWithin(E).of(0f);
+    assertThat(transform.pivotX).isWithin(E).of(0f);
+
+    // The drag continues from the adjusted translation.
+    transform.drag(20f, 0f);
+    assertThat(transform.translationX).isWithin(E).of(10f);
+  }
+
+  private void randomizeTransform() {
+    float scale = 0.1f + random.nextFloat() * 4f;
+    transform.read(
+      randomCoordinate(),
+      randomCoordinate(),
+      scale,
+      scale,
+      random.nextFloat() * 360f,
+      randomCoordinate(),
+      randomCoordinate());
+  }
+
+  private float randomCoordinate() {
+    return random.nextFloat() * 200f - 100f;
+  }
+
+  /**
+   * Maps a point in the target's coordinates to its parent's, as a view does.
+   */
+  private void map(float x, float y, float[] out) {
+    double radians = Math.toRadians(transform.rotation);
+    float cos = (float) Math.cos(radians);
+    float sin = (float) Math.sin(radians);
+    float dx = (x - transform.pivotX) * transform.scaleX;
+    float dy = (y - transform.pivotY) * transform.scaleY;
+
+    out[0] = transform.translationX + transform.pivotX + cos * dx - sin * dy;
+    out[1] = transform.translationY + transform.pivotY + sin * dx + cos * dy;
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.google.android.material.motion.family.directmanipulation.sample;
 
+import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.ColorFilter;
@@ -25,54 +26,123 @@ import android.graphics.drawable.Drawable;
 
 /**
  * Draws a checkerboard pattern.
+ * <p>
+ * The pattern is rasterized once into a cached bitmap at the current {@link #setRasterScale(float)
+ * raster scale}, and the cache is drawn until the bounds, the paint, or the raster scale change.
  */
 public class CheckerboardDrawable extends Drawable {
   public static final int COLS = 10;
   public static final int ROWS = 10;
+  /**
+   * The largest side of the cached bitmap, in pixels.
+   */
+  private static final int MAX_CACHE_SIZE = 2048;
   private final Paint gridPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
   private final Paint backgroundPaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.DITHER_FLAG);
+  private final Paint cachePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+  private Bitmap cache;
+  private float cacheScale;
+  private boolean cacheValid;
+  private float rasterScale = 1f;
 
   public CheckerboardDrawable() {
     gridPaint.setColor(Color.BLACK);
     backgroundPaint.setColor(Color.RED);
   }
 
+  /**
+   * Sets the scale at which the pattern is rasterized. Call this with the view's scale once a
+   * pinch has settled, so the cache is sharp at the new size. While the scale is changing the
+   * existing cache is stretched instead of redrawn.
+   */
+  public void setRasterScale(float rasterScale) {
+    if (this.rasterScale != rasterScale) {
+      this.rasterScale = rasterScale;
+      cacheValid = false;
+      invalidateSelf();
+    }
+  }
+
   @Override
   public void draw(Canvas canvas) {
     Rect bounds = getBounds();
+    if (bounds.isEmpty()) {
+      return;
+    }
 
-    canvas.drawRect(bounds, backgroundPaint);
+    if (!cacheValid) {
+      rasterize(bounds.width(), bounds.height());
+    }
+
+    canvas.save();
+    canvas.translate(bounds.left, bounds.top);
+    canvas.scale(1f / cacheScale, 1f / cacheScale);
+    canvas.drawBitmap(cache, 0, 0, cachePaint);
+    canvas.restore();
+  }
 
-    float cellWidth = (float) bounds.width() / COLS;
-    float cellHeight = (float) bounds.height() / ROWS;
+  private void rasterize(int width, int height) {
+    float scale = Math.min(rasterScale, (float) MAX_CACHE_SIZE / Math.max(width, height));
+    int cacheWidth = Math.max(1, Math.round(width * scale));
+    int cacheHeight = Math.max(1, Math.round(height * scale));
 
-    for (int i = 0, x = bounds.left; i < COLS + 1; i++, x += cellWidth) {
-      if (i == 0 || i == COLS) {
-        gridPaint.setStrokeWidth(10);
-      } else {
-        gridPaint.setStrokeWidth(1);
+    if (cache == null || cache.getWidth() != cacheWidth || cache.getHeight() != cacheHeight) {
+      if (cache != null) {
+        cache.recycle();
       }
-      canvas.drawLine(x, bounds.top, x, bounds.bottom, gridPaint);
+      cache = Bitmap.createBitmap(cacheWidth, cacheHeight, Bitmap.Config.ARGB_8888);
+    } else {
+      cache.eraseColor(Color.TRANSPARENT);
     }
-    for (int i = 0, y = bounds.top; i < ROWS + 1; i++, y += cellHeight) {
-      if (i == 0 || i == COLS) {
-        gridPaint.setStrokeWidth(10);
-      } else {
-        gridPaint.setStrokeWidth(1);
-      }
-      canvas.drawLine(bounds.left, y, bounds.right, y, gridPaint);
+
+    Canvas canvas = new Canvas(cache);
+    canvas.scale(scale, scale);
+    drawPattern(canvas, width, height);
+
+    cacheScale = scale;
+    cacheValid = true;
+  }
+
+  private void drawPattern(Canvas canvas, int width, int height) {
+    canvas.drawRect(0, 0, width, height, backgroundPaint);
+
+    float cellWidth = (float) width / COLS;
+    float cellHeight = (float) height / ROWS;
+
+    gridPaint.setStrokeWidth(1);
+    for (int i = 1; i < COLS; i++) {
+      float x = i * cellWidth;
+      canvas.drawLine(x, 0, x, height, gridPaint);
     }
+    for (int i = 1; i < ROWS; i++) {
+      float y = i * cellHeight;
+      canvas.drawLine(0, y, width, y, gridPaint);
+    }
+
+    gridPaint.setStrokeWidth(10);
+    canvas.drawLine(0, 0, 0, height, gridPaint);
+    canvas.drawLine(width, 0, width, height, gridPaint);
+    canvas.drawLine(0, 0, width, 0, gridPaint);
+    canvas.drawLine(0, height, width, height, gridPaint);
+  }
+
+  @Override
+  protected void onBoundsChange(Rect bounds) {
+    cacheValid = false;
   }
 
   @Override
   public void setAlpha(int alpha) {
     gridPaint.setAlpha(alpha);
+    cacheValid = false;
     invalidateSelf();
   }
 
   @Override
   public void setColorFilter(ColorFilter colorFilter) {
     gridPaint.setColorFilter(colorFilter);
+    cacheValid = false;
     invalidateSelf();
   }
 
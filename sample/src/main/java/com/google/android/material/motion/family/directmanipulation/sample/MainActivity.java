@@ -27,6 +27,9 @@ import com.google.android.libraries.remixer.ui.view.RemixerFragment;
 import com.google.android.material.motion.family.directmanipulation.Draggable;
 import com.google.android.material.motion.family.directmanipulation.Pinchable;
 import com.google.android.material.motion.family.directmanipulation.Rotatable;
+import com.google.android.material.motion.gestures.GestureRecognizer;
+import com.google.android.material.motion.gestures.GestureRecognizer.GestureStateChangeListener;
+import com.google.android.material.motion.gestures.ScaleGestureRecognizer;
 import com.google.android.material.motion.runtime.MotionRuntime;
 
 /**
@@ -36,6 +39,7 @@ public class MainActivity extends AppCompatActivity {
 
   private final MotionRuntime runtime = new MotionRuntime();
   private View target;
+  private CheckerboardDrawable checkerboard;
 
   @Override
   protected void onCreate(Bundle savedInstanceState) {
@@ -44,7 +48,8 @@ public class MainActivity extends AppCompatActivity {
     setContentView(R.layout.main_activity);
 
     target = findViewById(R.id.target);
-    target.setBackgroundDrawable(new CheckerboardDrawable());
+    checkerboard = new CheckerboardDrawable();
+    target.setBackgroundDrawable(checkerboard);
 
     RemixerBinder.bind(this);
     RemixerFragment remixerFragment = RemixerFragment.newInstance();
@@ -64,7 +69,9 @@ public class MainActivity extends AppCompatActivity {
   @BooleanVariableMethod(defaultValue = true, title = "Pinchable")
   public void setPinchable(Boolean pinchable) {
     if (pinchable) {
-      runtime.addNamedPlan(new Pinchable(), "pinchable", target);
+      ScaleGestureRecognizer scaleGestureRecognizer = new ScaleGestureRecognizer();
+      scaleGestureRecognizer.addStateChangeListener(rasterScaleListener);
+      runtime.addNamedPlan(new Pinchable(scaleGestureRecognizer), "pinchable", target);
     } else {
       runtime.removeNamedPlan("pinchable", target);
     }
@@ -78,4 +85,16 @@ public class MainActivity extends AppCompatActivity {
       runtime.removeNamedPlan("rotatable", target);
     }
   }
+
+  private final GestureStateChangeListener rasterScaleListener = new GestureStateChangeListener() {
+    @Override
+    public void onStateChanged(GestureRecognizer gestureRecognizer) {
+      switch (gestureRecognizer.getState()) {
+        case GestureRecognizer.RECOGNIZED:
+        case GestureRecognizer.CANCELLED:
+          checkerboard.setRasterScale(target.getScaleX());
+          break;
+      }
+    }
+  };
 }